@@ -1,6 +1,7 @@
 package edu.univ.erp;
 
 import com.formdev.flatlaf.FlatLightLaf;
+import edu.univ.erp.auth.HashingPolicy;
 import edu.univ.erp.ui.LoginWindow;
 import edu.univ.erp.ui.UiContext;
 
@@ -10,6 +11,10 @@ public class Main {
     //main to start the app
     public static void main(String[] args) {
         FlatLightLaf.setup(); // enable flatlaf
+        // time bcrypt in the background so the first login doesn't wait for it
+        Thread calibration = new Thread(HashingPolicy::get, "hash-calibration");
+        calibration.setDaemon(true);
+        calibration.start();
         // Swing UI must run on EDT
         SwingUtilities.invokeLater(() -> {UiContext ctx = UiContext.get(); LoginWindow login = new LoginWindow(ctx.auth(), ctx.users()); login.setVisible(true);});
     }
@@ -1,23 +1,21 @@
 package edu.univ.erp.access;
 
-import edu.univ.erp.data.SectionDao;
+import edu.univ.erp.data.SectionOwnershipIndex;
 import edu.univ.erp.domain.User;
 import edu.univ.erp.service.ServiceException;
 
-import javax.sql.DataSource;
-
 public class AccessManager {
-    private final SectionDao sectionDao;
+    private final SectionOwnershipIndex owners;
     //constructor
-    public AccessManager(DataSource erpDS) {
-        this.sectionDao = new SectionDao(erpDS);
+    public AccessManager() {
+        this.owners = SectionOwnershipIndex.get();
     }
 
-    //current user
+    //current user, from the session bound to the calling thread
     public User current() throws ServiceException {
         User u = CurrentSession.get();
         if (u == null)
-            throw new ServiceException("Not logged in.");
+            throw new ServiceException("Not logged in or session expired.");
         return u;
     }
 
@@ -44,10 +42,8 @@ public class AccessManager {
             throw new ServiceException("Access Denied.");
         }
         try {
-            var sec = sectionDao.getSection(sectionId);
-            //sections should exist and insturctor should match section
-            if (sec == null) throw new ServiceException("Access Denied.");
-            if (!sec.getInstructor().getUserId().equals(instructorId)) throw new ServiceException("Access Denied.");
+            //sections should exist and insturctor should match section (answered from the in-memory index)
+            if (!owners.isOwner(sectionId, instructorId)) throw new ServiceException("Access Denied.");
         } catch (Exception e) {
             throw new ServiceException(e.getMessage());
         }
@@ -2,18 +2,54 @@ package edu.univ.erp.access;
 
 import edu.univ.erp.domain.User;
 
+//binds a session to the thread handling the current request
+//a multi user front end wraps each request in bind(token); the desktop app attaches its session to the
+//Swing event thread, where all of its calls run. The user always comes from SessionRegistry, so an
+//expired or closed session stops working on every thread at once
 public class CurrentSession {
-    private static User currentUser;
-    //user of the app setting, getting and removing
-    public static void set(User user) {
-        currentUser = user;
+    private static final ThreadLocal<String> TOKEN = new ThreadLocal<>();
+
+    //binds a session to this thread until the returned binding is closed, restoring the previous one
+    public static Binding bind(String token) {
+        String previous = TOKEN.get();
+        TOKEN.set(token);
+        return new Binding(previous);
+    }
+
+    //binds a session to this thread with no end (the desktop login on the event thread)
+    public static void attach(String token) {
+        TOKEN.set(token);
+    }
+
+    //token of the session bound to this thread, or null
+    public static String token() {
+        return TOKEN.get();
     }
 
+    //user of the session bound to this thread, or null if none is bound or it expired
     public static User get() {
-        return currentUser;
+        Session s = SessionRegistry.get().resolve(TOKEN.get());
+        return s == null ? null : s.getUser();
     }
 
+    //closes the bound session and unbinds it
     public static void clear() {
-        currentUser = null;
+        SessionRegistry.get().close(TOKEN.get());
+        TOKEN.remove();
+    }
+
+    //an open binding, closing it puts back whatever was bound before
+    public static class Binding implements AutoCloseable {
+        private final String previous;
+
+        private Binding(String previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) TOKEN.remove();
+            else TOKEN.set(previous);
+        }
     }
 }
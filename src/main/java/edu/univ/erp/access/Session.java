@@ -0,0 +1,25 @@
+package edu.univ.erp.access;
+
+import edu.univ.erp.domain.User;
+
+//one logged in user, known to callers only by its opaque token
+public class Session {
+    private final String token;
+    private final User user;
+    private final long createdAt;
+    private volatile long lastSeen;
+    //constructor
+    Session(String token, User user, long now) {
+        this.token = token;
+        this.user = user;
+        this.createdAt = now;
+        this.lastSeen = now;
+    }
+    //getters
+    public String getToken() { return token; }
+    public User getUser() { return user; }
+    public long getCreatedAt() { return createdAt; }
+    public long getLastSeen() { return lastSeen; }
+
+    void touch(long now) { lastSeen = now; }
+}
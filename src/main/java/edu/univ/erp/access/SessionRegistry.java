@@ -0,0 +1,87 @@
+package edu.univ.erp.access;
+
+import edu.univ.erp.domain.User;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+//every open session by token, so one JVM can serve many logged in users at once
+//tokens are 256 random bits, a session unused for longer than the idle limit is expired on its next lookup
+//(and swept away now and then so abandoned sessions don't pile up)
+public class SessionRegistry {
+    //idle time before a session expires, can be changed with -Derp.session.idleMinutes
+    private static final long IDLE_MINUTES = Long.getLong("erp.session.idleMinutes", 30);
+    private static final int SWEEP_EVERY = 256;
+
+    private static SessionRegistry instance;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long idleMillis;
+    private final AtomicInteger untilSweep = new AtomicInteger(SWEEP_EVERY);
+    private final LongSupplier clock;
+
+    //constructor
+    SessionRegistry(long idleMinutes) {
+        this(idleMinutes, System::currentTimeMillis);
+    }
+
+    //constructor with its own clock (epoch millis), for tests
+    SessionRegistry(long idleMinutes, LongSupplier clock) {
+        this.idleMillis = idleMinutes * 60_000L;
+        this.clock = clock;
+    }
+
+    //only one registry exists, shared by every service
+    public static synchronized SessionRegistry get() {
+        if (instance == null) {
+            instance = new SessionRegistry(IDLE_MINUTES);
+        }
+        return instance;
+    }
+
+    //opens a session for an authenticated user
+    public Session open(User user) {
+        if (untilSweep.decrementAndGet() <= 0) sweep();
+
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Session s = new Session(token, user, clock.getAsLong());
+        sessions.put(token, s);
+        return s;
+    }
+
+    //the live session of a token, or null if it is unknown or idle for too long; a live session counts as used
+    public Session resolve(String token) {
+        if (token == null) return null;
+        Session s = sessions.get(token);
+        if (s == null) return null;
+
+        long now = clock.getAsLong();
+        if (now - s.getLastSeen() > idleMillis) {
+            sessions.remove(token, s);
+            return null;
+        }
+        s.touch(now);
+        return s;
+    }
+
+    //ends a session
+    public void close(String token) {
+        if (token != null) sessions.remove(token);
+    }
+
+    public int size() { return sessions.size(); }
+
+    //helper: removes every expired session
+    private void sweep() {
+        untilSweep.set(SWEEP_EVERY);
+        long now = clock.getAsLong();
+        sessions.values().removeIf(s -> now - s.getLastSeen() > idleMillis);
+    }
+}
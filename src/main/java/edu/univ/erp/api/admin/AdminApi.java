@@ -138,4 +138,59 @@ public class AdminApi {
             return ApiResult.error(e.getMessage());
         }
     }
+
+    //toggle registration rush mode
+    public ApiResult<Void> setRushMode(boolean on) {
+        try {
+            service.setRushMode(on);
+            return ApiResult.okMessage(on ? "Rush Mode ON." : "Rush Mode OFF.");
+        } catch (SQLException | ServiceException e) {
+            return ApiResult.error(e.getMessage());
+        }
+    }
+
+    //rush mode metrics
+    public ApiResult<AdminService.RushStats> rushStats() {
+        try {
+            return ApiResult.ok(service.getRushStats());
+        } catch (ServiceException e) {
+            return ApiResult.error(e.getMessage());
+        }
+    }
+
+    //timetable clash report for one term
+    public ApiResult<List<AdminService.Clash>> clashReport(String semester, int year) {
+        try {
+            return ApiResult.ok(service.getClashReport(semester, year));
+        } catch (SQLException | ServiceException e) {
+            return ApiResult.error(e.getMessage());
+        }
+    }
+
+    //rooms free at a day/time in a term
+    public ApiResult<List<String>> freeRooms(String semester, int year, String dayTime) {
+        try {
+            return ApiResult.ok(service.getFreeRooms(semester, year, dayTime));
+        } catch (SQLException | ServiceException e) {
+            return ApiResult.error(e.getMessage());
+        }
+    }
+
+    //password hashing pool metrics
+    public ApiResult<AdminService.HashStats> hashStats() {
+        try {
+            return ApiResult.ok(service.getHashStats());
+        } catch (ServiceException e) {
+            return ApiResult.error(e.getMessage());
+        }
+    }
+
+    //cache hit/miss counters
+    public ApiResult<AdminService.CacheStats> cacheStats() {
+        try {
+            return ApiResult.ok(service.getCacheStats());
+        } catch (ServiceException e) {
+            return ApiResult.error(e.getMessage());
+        }
+    }
 }
@@ -2,12 +2,11 @@ package edu.univ.erp.api.maintenance;
 
 import edu.univ.erp.api.common.ApiResult;
 import edu.univ.erp.service.MaintenanceService;
-import edu.univ.erp.util.DataSourceProvider;
 
 public class MaintenanceApi {
     private final MaintenanceService maintenanceService;
     public MaintenanceApi() {
-        this.maintenanceService = new MaintenanceService(DataSourceProvider.getERPDataSource());
+        this.maintenanceService = new MaintenanceService();
     }
 
     //return if maintenance is on or off
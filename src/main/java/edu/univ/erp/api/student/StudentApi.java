@@ -2,6 +2,7 @@ package edu.univ.erp.api.student;
 
 import edu.univ.erp.api.common.ApiResult;
 import edu.univ.erp.domain.*;
+import edu.univ.erp.service.ScheduleSolver;
 import edu.univ.erp.service.StudentService;
 
 import java.util.List;
@@ -32,6 +33,24 @@ public class StudentApi {
         }
     }
 
+    //sections of a course with seats left
+    public ApiResult<List<SectionAvailability>> availability(int courseId) {
+        try {
+            return ApiResult.ok(service.getSectionAvailability(courseId));
+        } catch (Exception e) {
+            return ApiResult.error("Failed To Load Sections: " + e.getMessage());
+        }
+    }
+
+    //sections of a term with seats left
+    public ApiResult<List<SectionAvailability>> termAvailability(String semester, int year) {
+        try {
+            return ApiResult.ok(service.getTermAvailability(semester, year));
+        } catch (Exception e) {
+            return ApiResult.error("Failed To Load Sections: " + e.getMessage());
+        }
+    }
+
     //register in section
     public ApiResult<String> register(String studentId, int sectionId) {
         try {
@@ -42,6 +61,16 @@ public class StudentApi {
         }
     }
 
+    //register in every section of the cart, all or nothing
+    public ApiResult<String> registerCart(String studentId, List<Integer> sectionIds) {
+        try {
+            service.registerCart(studentId, sectionIds);
+            return ApiResult.okMessage("Registered In All Cart Sections.");
+        } catch (Exception e) {
+            return ApiResult.error("Registration Failed: " + e.getMessage());
+        }
+    }
+
     //drop section
     public ApiResult<String> drop(String studentId, int sectionId) {
         try {
@@ -52,6 +81,25 @@ public class StudentApi {
         }
     }
 
+    //position on a section's waitlist (0 if not on it)
+    public ApiResult<Integer> waitlistPosition(String studentId, int sectionId) {
+        try {
+            return ApiResult.ok(service.getWaitlistPosition(studentId, sectionId));
+        } catch (Exception e) {
+            return ApiResult.error("Failed To Load Waitlist: " + e.getMessage());
+        }
+    }
+
+    //leave a section's waitlist
+    public ApiResult<String> leaveWaitlist(String studentId, int sectionId) {
+        try {
+            service.leaveWaitlist(studentId, sectionId);
+            return ApiResult.okMessage("Removed From Waitlist.");
+        } catch (Exception e) {
+            return ApiResult.error("Failed To Leave Waitlist: " + e.getMessage());
+        }
+    }
+
     //enrolled sections for student
     public ApiResult<List<Section>> mySections(String studentId) {
         try {
@@ -70,6 +118,15 @@ public class StudentApi {
         }
     }
 
+    //conflict free timetables for a list of courses in one term
+    public ApiResult<List<ScheduleSolver.Timetable>> buildSchedules(String studentId, List<Integer> courseIds, String semester, int year, int count) {
+        try {
+            return ApiResult.ok(service.buildSchedules(studentId, courseIds, semester, year, count));
+        } catch (Exception e) {
+            return ApiResult.error("Failed To Build Timetables: " + e.getMessage());
+        }
+    }
+
     //student timetable
     public ApiResult<List<Section>> timetable(String studentId) {
         try {
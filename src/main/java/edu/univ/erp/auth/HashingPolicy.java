@@ -0,0 +1,86 @@
+package edu.univ.erp.auth;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+//decides the bcrypt cost used for new password hashes
+//instead of a fixed work factor, bcrypt is timed once at startup and the highest cost whose hash still fits
+//the latency budget is used, so fast hardware gets stronger hashes and slow hardware keeps logins usable
+//the cost never goes below 12, however slow the machine; stored hashes below the current cost still verify,
+//and AuthService rehashes them on the next successful login (a hash above it is kept, never weakened)
+public class HashingPolicy {
+    //time one hash may take, can be changed with -Derp.hash.budgetMillis
+    private static final long BUDGET_MILLIS = Long.getLong("erp.hash.budgetMillis", 250);
+    //lowest cost ever used, the properties below can raise it but not lower it
+    private static final int FLOOR_COST = 12;
+    //cost range the calibration may pick from
+    private static final int MIN_COST = Math.max(FLOOR_COST, Integer.getInteger("erp.hash.minCost", FLOOR_COST));
+    private static final int MAX_COST = Math.max(MIN_COST, Integer.getInteger("erp.hash.maxCost", 16));
+    //a fixed cost skips calibration, e.g. -Derp.hash.cost=13
+    private static final Integer FIXED_COST = Integer.getInteger("erp.hash.cost");
+
+    private static HashingPolicy instance;
+
+    private final int cost;
+    private final double measuredMillis;
+
+    //constructor
+    HashingPolicy(int cost, double measuredMillis) {
+        this.cost = cost;
+        this.measuredMillis = measuredMillis;
+    }
+
+    //only one policy exists, calibrated the first time it is needed
+    public static synchronized HashingPolicy get() {
+        if (instance == null) {
+            instance = FIXED_COST != null ? new HashingPolicy(Math.max(FLOOR_COST, FIXED_COST), -1) : calibrate(BUDGET_MILLIS, MIN_COST, MAX_COST);
+        }
+        return instance;
+    }
+
+    //cost for new hashes
+    public int getCost() { return cost; }
+
+    //time of one hash at that cost during calibration, -1 if the cost was fixed
+    public double getMeasuredMillis() { return measuredMillis; }
+
+    //true if a stored hash was made with a lower cost and should be replaced
+    public boolean needsRehash(String hash) {
+        return costOf(hash) < cost;
+    }
+
+    //cost of a stored bcrypt hash ("$2a$12$..."), -1 if it can't be read
+    public static int costOf(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$') return -1;
+        int end = hash.indexOf('$', 1);
+        if (end < 0 || hash.length() < end + 3) return -1;
+        try {
+            return Integer.parseInt(hash.substring(end + 1, end + 3));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    //times the lowest cost, predicts the rest (each step doubles the work), then checks the pick with a real hash
+    static HashingPolicy calibrate(long budgetMillis, int minCost, int maxCost) {
+        BCrypt.hashpw("calibration", BCrypt.gensalt(minCost)); //warm up
+        double base = time(minCost);
+
+        int cost = minCost;
+        while (cost < maxCost && base * (1L << (cost + 1 - minCost)) <= budgetMillis) cost++;
+
+        //the prediction can be off (turbo, noisy neighbours), so measure the pick and step down if it is over
+        double measured = cost == minCost ? base : time(cost);
+        while (cost > minCost && measured > budgetMillis) {
+            cost--;
+            measured = time(cost);
+        }
+        return new HashingPolicy(cost, measured);
+    }
+
+    //helper: milliseconds for one hash at a cost
+    private static double time(int cost) {
+        long start = System.nanoTime();
+        BCrypt.hashpw("calibration", BCrypt.gensalt(cost));
+        return (System.nanoTime() - start) / 1e6;
+    }
+}
@@ -0,0 +1,138 @@
+package edu.univ.erp.auth;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+//counts failed logins per username in memory over a sliding window
+//a username with too many recent failures is locked out, and while the lockout runs every attempt is refused
+//before the user row is read or bcrypt runs, so a password guessing run costs neither database writes nor CPU
+//only the start of a lockout is written to auth_db (by AuthService), other app instances still see it there
+//the count itself is per JVM: with N app instances an attacker spreading guesses over all of them gets
+//up to N x maxAttempts tries per window before any instance writes a lock to the database
+public class LoginThrottle {
+    //failures allowed inside the window, can be changed with -Derp.login.maxAttempts
+    private static final int MAX_ATTEMPTS = Integer.getInteger("erp.login.maxAttempts", 5);
+    //how long a lockout lasts, can be changed with -Derp.login.lockMinutes
+    private static final int LOCK_MINUTES = Integer.getInteger("erp.login.lockMinutes", 5);
+    //how far back failures are counted, can be changed with -Derp.login.windowMinutes
+    private static final int WINDOW_MINUTES = Integer.getInteger("erp.login.windowMinutes", 15);
+    private static final int STRIPES = 64;
+    private static final int SWEEP_EVERY = 1024;
+
+    private static LoginThrottle instance;
+
+    private final int maxAttempts;
+    private final long lockMillis;
+    private final long windowMillis;
+    private final ConcurrentHashMap<String, Attempts> attempts = new ConcurrentHashMap<>();
+    private final Object[] stripes = new Object[STRIPES];
+    private final AtomicInteger untilSweep = new AtomicInteger(SWEEP_EVERY);
+    private final LongSupplier clock;
+
+    //constructor
+    LoginThrottle(int maxAttempts, int lockMinutes, int windowMinutes) {
+        this(maxAttempts, lockMinutes, windowMinutes, System::currentTimeMillis);
+    }
+
+    //constructor with its own clock (epoch millis), for tests
+    LoginThrottle(int maxAttempts, int lockMinutes, int windowMinutes, LongSupplier clock) {
+        this.clock = clock;
+        this.maxAttempts = maxAttempts;
+        this.lockMillis = lockMinutes * 60_000L;
+        this.windowMillis = windowMinutes * 60_000L;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Object();
+    }
+
+    //only one throttle exists, shared by every AuthService
+    public static synchronized LoginThrottle get() {
+        if (instance == null) {
+            instance = new LoginThrottle(MAX_ATTEMPTS, LOCK_MINUTES, WINDOW_MINUTES);
+        }
+        return instance;
+    }
+
+    public int getLockMinutes() { return (int) (lockMillis / 60_000L); }
+
+    //end of the running lockout of a username (epoch millis), 0 if it may try now
+    public long lockedUntil(String username) {
+        String key = key(username);
+        Attempts a = attempts.get(key);
+        if (a == null) return 0;
+
+        synchronized (stripe(key)) {
+            return a.lockedUntil > clock.getAsLong() ? a.lockedUntil : 0;
+        }
+    }
+
+    //records a wrong password, returns the end of the lockout (epoch millis) if this failure starts one, else 0
+    public long recordFailure(String username) {
+        if (untilSweep.decrementAndGet() <= 0) sweep();
+
+        String key = key(username);
+        long now = clock.getAsLong();
+        synchronized (stripe(key)) {
+            Attempts a = attempts.computeIfAbsent(key, k -> new Attempts(maxAttempts));
+            //ring of the last maxAttempts failure times: after this one is written, the next slot holds the oldest,
+            //so the limit is reached when that one is still inside the window
+            a.times[a.next] = now;
+            a.next = (a.next + 1) % maxAttempts;
+            long oldest = a.times[a.next];
+
+            if (oldest > 0 && now - oldest < windowMillis) {
+                a.lockedUntil = now + lockMillis;
+                Arrays.fill(a.times, 0);
+                return a.lockedUntil;
+            }
+            return 0;
+        }
+    }
+
+    //forgets the failures of a username after a successful login
+    public void recordSuccess(String username) {
+        String key = key(username);
+        if (!attempts.containsKey(key)) return;
+        synchronized (stripe(key)) {
+            attempts.remove(key);
+        }
+    }
+
+    //helper: drops usernames with no running lockout and no failure inside the window, so memory stays bounded
+    private void sweep() {
+        untilSweep.set(SWEEP_EVERY);
+        long now = clock.getAsLong();
+        for (String key : attempts.keySet()) {
+            synchronized (stripe(key)) {
+                Attempts a = attempts.get(key);
+                if (a != null && a.lockedUntil <= now && now - a.newest() >= windowMillis) attempts.remove(key);
+            }
+        }
+    }
+
+    private Object stripe(String key) {
+        return stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    //usernames are matched the way the auth_users collation does, ignoring case
+    private static String key(String username) {
+        return username == null ? "" : username.trim().toLowerCase();
+    }
+
+    //recent failures and lockout of one username, guarded by its stripe
+    private static class Attempts {
+        final long[] times;
+        int next;
+        long lockedUntil;
+
+        Attempts(int size) {
+            this.times = new long[size];
+        }
+
+        long newest() {
+            long max = 0;
+            for (long t : times) max = Math.max(max, t);
+            return max;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package edu.univ.erp.auth;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+//runs every bcrypt hash and check on a small fixed pool instead of the caller's thread
+//a check costs ~250 ms of CPU at work factor 12, so the pool size caps how many cores logins can take,
+//and the bounded queue turns a burst beyond that into a quick "busy" answer instead of a pile of waiting threads
+public class PasswordHasher {
+    //pool threads, can be changed with -Derp.hash.threads (default: half the cores)
+    private static final int THREADS = Integer.getInteger("erp.hash.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    //requests allowed to wait for a thread, can be changed with -Derp.hash.queue
+    private static final int QUEUE = Integer.getInteger("erp.hash.queue", 32);
+
+    private static PasswordHasher instance;
+
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong queueNanos = new AtomicLong();
+    private final AtomicLong hashNanos = new AtomicLong();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    //constructor
+    PasswordHasher(int threads, int queue) {
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queue), r -> {
+            Thread t = new Thread(r, "password-hasher");
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    //only one hasher exists, shared by every service
+    public static synchronized PasswordHasher get() {
+        if (instance == null) {
+            instance = new PasswordHasher(THREADS, QUEUE);
+        }
+        return instance;
+    }
+
+    //checks a password against a stored hash
+    public boolean verify(String plain, String hash) throws BusyException {
+        return run(() -> BCrypt.checkpw(plain, hash));
+    }
+
+    //hashes a new password
+    public String hash(String plain) throws BusyException {
+        return run(() -> PasswordUtil.hashPassword(plain));
+    }
+
+    public long getCompleted() { return completed.get(); }
+    public long getRejected() { return rejected.get(); }
+    public int getQueueDepth() { return pool.getQueue().size(); }
+    public int getActive() { return pool.getActiveCount(); }
+    public int getThreads() { return pool.getCorePoolSize(); }
+
+    //average time a request waited for a thread
+    public double getAverageQueueMillis() {
+        long n = completed.get();
+        return n == 0 ? 0 : queueNanos.get() / 1e6 / n;
+    }
+
+    //longest time a request waited for a thread
+    public double getMaxQueueMillis() {
+        return maxQueueNanos.get() / 1e6;
+    }
+
+    //average time of one bcrypt call
+    public double getAverageHashMillis() {
+        long n = completed.get();
+        return n == 0 ? 0 : hashNanos.get() / 1e6 / n;
+    }
+
+    //helper: runs one bcrypt call on the pool, waits for it and records queue and hash times
+    //package-private so tests can hold the pool with work of their own
+    <T> T run(Callable<T> work) throws BusyException {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = pool.submit(() -> {
+                long started = System.nanoTime();
+                try {
+                    return work.call();
+                } finally {
+                    long waited = started - submitted;
+                    queueNanos.addAndGet(waited);
+                    hashNanos.addAndGet(System.nanoTime() - started);
+                    maxQueueNanos.accumulateAndGet(waited, Math::max);
+                    completed.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new BusyException("Server is busy. Please try again in a moment.");
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BusyException("Interrupted while checking the password.");
+        } catch (ExecutionException e) {
+            //bcrypt only throws unchecked exceptions (e.g. a malformed stored hash)
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    //thrown when every thread is busy and the queue is full
+    public static class BusyException extends Exception {
+        public BusyException(String message) {
+            super(message);
+        }
+    }
+}
@@ -3,10 +3,9 @@ package edu.univ.erp.auth;
 import org.mindrot.jbcrypt.BCrypt;
 
 public class PasswordUtil {
-    private static final int WORK_FACTOR = 12;
-    //constructor
+    //hashes with the cost picked by HashingPolicy
     public static String hashPassword(String plain) {
-        return BCrypt.hashpw(plain, BCrypt.gensalt(WORK_FACTOR));
+        return BCrypt.hashpw(plain, BCrypt.gensalt(HashingPolicy.get().getCost()));
     }
 
     public static void main(String[] args) {
@@ -4,8 +4,7 @@ import edu.univ.erp.domain.Assessment;
 
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 public class AssessmentDao {
     private final DataSource ds;
@@ -29,6 +28,28 @@ public class AssessmentDao {
         return list;
     }
 
+    // gets the assessments of many sections with one query
+    // returns a map of section ID -> assessments, every requested section gets a list (maybe empty)
+    public Map<Integer, List<Assessment>> getBySections(Collection<Integer> sectionIds) throws SQLException {
+        var map = new LinkedHashMap<Integer, List<Assessment>>();
+        for (int id : sectionIds) map.put(id, new ArrayList<>());
+        if (map.isEmpty()) return map;
+
+        var ids = new ArrayList<>(map.keySet());
+        var sql = "SELECT assessment_id, section_id, name, max_marks, weight FROM assessments WHERE section_id IN (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ") ORDER BY assessment_id";
+
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) ps.setInt(i + 1, ids.get(i));
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Assessment a = mapRow(rs);
+                    map.get(a.getSectionId()).add(a);
+                }
+            }
+        }
+        return map;
+    }
+
     // this adds a new assessment to the database
 
     public void insert(Assessment a) throws SQLException {
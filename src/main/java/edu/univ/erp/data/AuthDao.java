@@ -1,16 +1,23 @@
 package edu.univ.erp.data;
 
+import edu.univ.erp.auth.PasswordHasher;
 import edu.univ.erp.domain.User;
-import org.mindrot.jbcrypt.BCrypt;
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.Optional;
+import java.util.*;
 
 public class AuthDao {
+    // largest number of ids sent in one IN (...) list
+    static final int IN_CHUNK_SIZE = 500;
+
     private final DataSource authDS;
+    private final UserProfileCache profiles;
+    private final PasswordHasher hasher;
 
     public AuthDao(DataSource authDS) {
         this.authDS = authDS;
+        this.profiles = UserProfileCache.get();
+        this.hasher = PasswordHasher.get();
     }
 
     // this is used to find a user in the database using their username
@@ -40,24 +47,31 @@ public class AuthDao {
         return Optional.empty();
     }
 
-    // adds 1 to the failed login counter for a specific user
-    public void incrementFailedAttempts(String userId) throws SQLException {
-        var sql = "UPDATE auth_users SET failed_attempts = failed_attempts + 1 WHERE user_id = ?";
-
-        try (var conn = authDS.getConnection(); var ps = conn.prepareStatement(sql)) {
-            ps.setString(1, userId);
-            ps.executeUpdate();
-        }
-    }
-
-    // used to reset the failed login counter back to 0 
-    public void resetFailedAttempts(String userId) throws SQLException {
-        var sql = "UPDATE auth_users SET failed_attempts = 0 WHERE user_id = ?";
-
-        try (var conn = authDS.getConnection(); var ps = conn.prepareStatement(sql)) {
-            ps.setString(1, userId);
-            ps.executeUpdate();
+    // finds many users at once with chunked IN (...) queries on one connection
+    // returns a map of user ID -> user, ids that don't exist are simply missing from the map
+    public Map<String, User> findByUserIds(Collection<String> userIds) throws SQLException {
+        var map = new HashMap<String, User>();
+        if (userIds.isEmpty()) return map;
+
+        var ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+        try (var conn = authDS.getConnection()) {
+            // big rosters are split so one statement never carries thousands of parameters
+            for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+                var chunk = ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size()));
+                var sql = "SELECT * FROM auth_users WHERE user_id IN (" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+
+                try (var ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) ps.setString(i + 1, chunk.get(i));
+                    try (var rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            User u = mapUser(rs);
+                            map.put(u.getUserId(), u);
+                        }
+                    }
+                }
+            }
         }
+        return map;
     }
 
     // it locks the user account until a specific time
@@ -69,25 +83,33 @@ public class AuthDao {
             ps.setString(2, userId);
             ps.executeUpdate();
         }
+        profiles.invalidate(userId);
     }
 
-    // it unlocks the user account and if there are any failed attempts, it clears them
-    public void unlockUser(String userId) throws SQLException {
-        var sql = "UPDATE auth_users SET status='active', locked_until=NULL, failed_attempts=0 WHERE user_id=?";
+    // records a successful login with one UPDATE: the failed counter and any expired lock are cleared and
+    // last_login is stamped together (a clean login with LastLoginWriter on doesn't come here at all)
+    public void recordLogin(String userId) throws SQLException {
+        var sql = "UPDATE auth_users SET failed_attempts = 0, status = CASE WHEN status = 'locked' THEN 'active' ELSE status END, locked_until = NULL, last_login = NOW() WHERE user_id = ?";
 
         try (var conn = authDS.getConnection(); var ps = conn.prepareStatement(sql)) {
             ps.setString(1, userId);
             ps.executeUpdate();
         }
+        profiles.invalidate(userId);
     }
 
-    // used to update the 'last_login' timestamp to the current time
-    public void updateLastLogin(String userId) throws SQLException {
-        var sql = "UPDATE auth_users SET last_login=NOW() WHERE user_id=?";
+    // writes many last_login values with one batched UPDATE
+    public void updateLastLogins(Map<String, Timestamp> lastLogins) throws SQLException {
+        if (lastLogins.isEmpty()) return;
+        var sql = "UPDATE auth_users SET last_login=? WHERE user_id=?";
 
         try (var conn = authDS.getConnection(); var ps = conn.prepareStatement(sql)) {
-            ps.setString(1, userId);
-            ps.executeUpdate();
+            for (var e : lastLogins.entrySet()) {
+                ps.setTimestamp(1, e.getValue());
+                ps.setString(2, e.getKey());
+                ps.addBatch();
+            }
+            ps.executeBatch();
         }
     }
 
@@ -100,14 +122,15 @@ public class AuthDao {
             ps.setString(2, username);
             ps.executeUpdate();
         }
+        profiles.invalidateUsername(username);
     }
 
     // creates a new user
     // hashes user's  password
     // save user and password details to the database
-    public void addUser(String fullName, String username, String password, String role, String userId) throws SQLException {
-        // it securely hashes the password before storing it
-        var hash = BCrypt.hashpw(password, BCrypt.gensalt(12));
+    public void addUser(String fullName, String username, String password, String role, String userId) throws SQLException, PasswordHasher.BusyException {
+        // it securely hashes the password before storing it, on the shared hashing pool
+        var hash = hasher.hash(password);
 
         var sql = "INSERT INTO auth_users (user_id, username, role, password_hash, status, failed_attempts, full_name) VALUES (?, ?, ?, ?, 'active', 0, ?)";
 
@@ -0,0 +1,83 @@
+package edu.univ.erp.data;
+
+import edu.univ.erp.domain.GradeSlab;
+import java.util.*;
+
+// the grade slabs of one section compiled into arrays sorted by lower bound
+// letter lookups and overlap checks are binary searches instead of list scans
+public class CompiledSlabs {
+    private final List<GradeSlab> slabs; // highest first, like GradeSlabDao.getSlabs
+    private final double[] mins;          // ascending
+    private final double[] maxs;
+    private final String[] letters;
+    private final int[] ids;
+
+    public CompiledSlabs(List<GradeSlab> slabs) {
+        var sorted = new ArrayList<>(slabs);
+        sorted.sort(Comparator.comparingDouble(GradeSlab::getMin));
+
+        int n = sorted.size();
+        this.mins = new double[n];
+        this.maxs = new double[n];
+        this.letters = new String[n];
+        this.ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            GradeSlab s = sorted.get(i);
+            mins[i] = s.getMin();
+            maxs[i] = s.getMax();
+            letters[i] = s.getLetter();
+            ids[i] = s.getId();
+        }
+
+        Collections.reverse(sorted);
+        this.slabs = List.copyOf(sorted);
+    }
+
+    public List<GradeSlab> getSlabs() { return slabs; }
+
+    // letter of the slab containing the percentage, or null if no slab contains it
+    // when two slabs share a boundary the higher one wins, same as scanning from the top
+    public String letterFor(double percent) {
+        int i = lastMinAtMost(percent);
+        if (i >= 0 && percent <= maxs[i]) return letters[i];
+        return null;
+    }
+
+    // checks if [min, max] overlaps a slab other than the excluded one (touching boundaries is fine)
+    // since saved slabs never overlap, only the closest slab starting below max needs to be checked
+    public boolean overlaps(double min, double max, int excludeSlabId) {
+        int i = lastMinBelow(max);
+        if (i >= 0 && ids[i] == excludeSlabId) i--;
+        return i >= 0 && maxs[i] > min;
+    }
+
+    // checks if a slab other than the excluded one already uses the letter
+    public boolean hasLetter(String letter, int excludeSlabId) {
+        for (int i = 0; i < letters.length; i++) {
+            if (ids[i] != excludeSlabId && letters[i].equals(letter)) return true;
+        }
+        return false;
+    }
+
+    // index of the last slab with min <= value, or -1
+    private int lastMinAtMost(double value) {
+        int lo = 0, hi = mins.length - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mins[mid] <= value) { found = mid; lo = mid + 1; }
+            else hi = mid - 1;
+        }
+        return found;
+    }
+
+    // index of the last slab with min < value, or -1
+    private int lastMinBelow(double value) {
+        int lo = 0, hi = mins.length - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mins[mid] < value) { found = mid; lo = mid + 1; }
+            else hi = mid - 1;
+        }
+        return found;
+    }
+}
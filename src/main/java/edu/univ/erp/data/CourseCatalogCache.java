@@ -0,0 +1,95 @@
+package edu.univ.erp.data;
+
+import edu.univ.erp.domain.Course;
+import edu.univ.erp.util.DataSourceProvider;
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// keeps the course catalog in memory for CourseDao.findAllCourses
+// every course write bumps a version number stored in the settings table, and the cached copy
+// compares its version with a cheap probe (at most once per probe interval) so other app instances notice changes
+public class CourseCatalogCache {
+    // how long a cached copy is used without probing, can be changed with -Derp.catalog.probeMillis
+    private static final long PROBE_MILLIS = Long.getLong("erp.catalog.probeMillis", 2000);
+    private static final String VERSION_KEY = "catalog_version";
+
+    private static CourseCatalogCache instance;
+
+    private final DataSource ds;
+    private final long probeNanos;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile Entry entry;
+
+    CourseCatalogCache(DataSource ds, long probeMillis) {
+        this.ds = ds;
+        this.probeNanos = probeMillis * 1_000_000L;
+    }
+
+    // only one catalog cache exists, shared by every CourseDao
+    public static synchronized CourseCatalogCache get() {
+        if (instance == null) {
+            instance = new CourseCatalogCache(DataSourceProvider.getERPDataSource(), PROBE_MILLIS);
+        }
+        return instance;
+    }
+
+    // returns the cached catalog if it is still current, or null on a miss
+    // after a miss the caller loads the catalog and hands it to store()
+    public List<Course> lookup() throws SQLException {
+        Entry e = entry;
+        if (e != null) {
+            long now = System.nanoTime();
+            if (now - e.checkedAt <= probeNanos) {
+                hits.incrementAndGet();
+                return e.courses;
+            }
+            if (readVersion() == e.version) {
+                entry = new Entry(e.courses, e.version, now);
+                hits.incrementAndGet();
+                return e.courses;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    // caches a freshly loaded catalog under the version that was read before loading it
+    // returns the cached (unmodifiable) copy, so a miss hands out the same kind of list as a hit
+    public List<Course> store(List<Course> courses, long version) {
+        var copy = List.copyOf(courses);
+        entry = new Entry(copy, version, System.nanoTime());
+        return copy;
+    }
+
+    // marks every cached copy as stale, called after a course is added, changed or removed
+    public void bump() throws SQLException {
+        var sql = "INSERT INTO settings (setting_key, setting_value) VALUES (?, '1') ON DUPLICATE KEY UPDATE setting_value = CAST(setting_value AS UNSIGNED) + 1";
+
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+            ps.setString(1, VERSION_KEY);
+            ps.executeUpdate();
+        }
+        entry = null;
+    }
+
+    // the version probe: one indexed single-row read
+    public long readVersion() throws SQLException {
+        var sql = "SELECT setting_value FROM settings WHERE setting_key = ?";
+
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+            ps.setString(1, VERSION_KEY);
+            try (var rs = ps.executeQuery()) {
+                return rs.next() ? Long.parseLong(rs.getString(1)) : 0;
+            }
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+
+    // one cached copy of the catalog
+    private record Entry(List<Course> courses, long version, long checkedAt) {}
+}
@@ -7,9 +7,11 @@ import java.util.*;
 
 public class CourseDao {
     private final DataSource ds;
+    private final CourseCatalogCache catalog;
 
     public CourseDao(DataSource ds) {
         this.ds = ds;
+        this.catalog = CourseCatalogCache.get();
     }
 
     // this adds a new course to the database
@@ -22,6 +24,7 @@ public class CourseDao {
             ps.setInt(3, credits);
             ps.executeUpdate();
         }
+        catalog.bump();
     }
 
     // this updates the title and credits of an existing course using its course code
@@ -34,6 +37,7 @@ public class CourseDao {
             ps.setString(3, code);
             ps.executeUpdate();
         }
+        catalog.bump();
     }
 
     // function to remove a course from the database using its unique numeric ID
@@ -44,6 +48,7 @@ public class CourseDao {
             ps.setInt(1, id);
             ps.executeUpdate();
         }
+        catalog.bump();
     }
 
     // used to find a specific course by its numeric ID
@@ -62,7 +67,13 @@ public class CourseDao {
     }
 
     // retrieves a list of all courses, sorted by their course code
+    // served from the catalog cache, the table is only read when the cached copy is stale
     public List<Course> findAllCourses() throws SQLException {
+        var cached = catalog.lookup();
+        if (cached != null) return cached;
+
+        // read the version first so a write that lands during the load makes the next lookup reload
+        long version = catalog.readVersion();
         var sql = "SELECT * FROM courses ORDER BY code";
         var list = new ArrayList<Course>();
 
@@ -76,6 +87,6 @@ public class CourseDao {
                 ));
             }
         }
-        return list;
+        return catalog.store(list, version);
     }
 }
@@ -2,21 +2,25 @@ package edu.univ.erp.data;
 
 import edu.univ.erp.domain.*;
 import edu.univ.erp.util.DataSourceProvider;
+import edu.univ.erp.util.WeekSlots;
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 public class EnrollmentDao {
     private final DataSource ds;
     private final CourseDao courseDao;
     private final UserDao userDao;
+    private final AuthDao authDao;
+    private final WaitlistDao waitlistDao;
 
     public EnrollmentDao(DataSource ds) {
         this.ds = ds;
         this.courseDao = new CourseDao(ds);
         // initialize UserDao with both data sources
         this.userDao = new UserDao(DataSourceProvider.getAuthDataSource(), DataSourceProvider.getERPDataSource());
+        this.authDao = new AuthDao(DataSourceProvider.getAuthDataSource());
+        this.waitlistDao = new WaitlistDao(ds);
     }
 
     // to check wether a student is already actively registered for a specific section
@@ -32,59 +36,290 @@ public class EnrollmentDao {
         }
     }
 
-    // registers a student
-    // If they were previously 'dropped', it reactivates them to 'registered'.
-    public void register(String studentId, int sectionId) throws SQLException {
-        var sql = "INSERT INTO enrollments (student_id, section_id, status) VALUES (?, ?, 'registered') ON DUPLICATE KEY UPDATE status = 'registered'";
+    // result of a seat reservation
+    public enum SeatResult { RESERVED, FULL, ALREADY_ENROLLED }
 
-        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
-            ps.setString(1, studentId);
-            ps.setInt(2, sectionId);
-            ps.executeUpdate();
+    // registers a student, the capacity check and the insert happen in one transaction
+    // the section row is locked first, so concurrent registrations for the same section queue up there and
+    // can never overfill it; an existing registration is found before the seat check, so a student already
+    // in a full section gets ALREADY_ENROLLED, not FULL
+    // If they were previously 'dropped', it reactivates them to 'registered', and if they were waitlisted they leave the waitlist.
+    public SeatResult reserveSeat(String studentId, int sectionId) throws SQLException {
+        var lockSection = "SELECT capacity, enrolled_count FROM sections WHERE section_id = ? FOR UPDATE";
+        var existing = "SELECT 1 FROM enrollments WHERE student_id = ? AND section_id = ? AND status = 'registered'";
+        var takeSeat = "UPDATE sections SET enrolled_count = enrolled_count + 1 WHERE section_id = ?";
+        var insert = "INSERT INTO enrollments (student_id, section_id, status) VALUES (?, ?, 'registered') ON DUPLICATE KEY UPDATE status = 'registered'";
+        var unwait = "DELETE FROM waitlist WHERE section_id = ? AND student_id = ?";
+
+        try (var conn = ds.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // a section that doesn't exist is reported as full
+                boolean free = false;
+                try (var ps = conn.prepareStatement(lockSection)) {
+                    ps.setInt(1, sectionId);
+                    try (var rs = ps.executeQuery()) {
+                        if (rs.next()) free = rs.getInt("enrolled_count") < rs.getInt("capacity");
+                    }
+                }
+                try (var ps = conn.prepareStatement(existing)) {
+                    ps.setString(1, studentId);
+                    ps.setInt(2, sectionId);
+                    try (var rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            conn.rollback();
+                            return SeatResult.ALREADY_ENROLLED;
+                        }
+                    }
+                }
+                if (!free) {
+                    conn.rollback();
+                    return SeatResult.FULL;
+                }
+                try (var ps = conn.prepareStatement(takeSeat)) {
+                    ps.setInt(1, sectionId);
+                    ps.executeUpdate();
+                }
+                try (var ps = conn.prepareStatement(insert)) {
+                    ps.setString(1, studentId);
+                    ps.setInt(2, sectionId);
+                    ps.executeUpdate();
+                }
+                try (var ps = conn.prepareStatement(unwait)) {
+                    ps.setInt(1, sectionId);
+                    ps.setString(2, studentId);
+                    ps.executeUpdate();
+                }
+                conn.commit();
+                waitlistDao.removed(studentId, sectionId);
+                return SeatResult.RESERVED;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // registers a student in several sections at once, all or nothing, in one transaction
+    // every section row is locked in ID order and checked in one query, existing registrations in one more,
+    // then the counters, enrollments and waitlist cleanup go out as batches
+    // returns the outcome per section; if any section is not RESERVED nothing was written
+    public Map<Integer, SeatResult> reserveSeats(String studentId, Collection<Integer> sectionIds) throws SQLException {
+        var ids = new ArrayList<>(new TreeSet<>(sectionIds));
+        var results = new LinkedHashMap<Integer, SeatResult>();
+        if (ids.isEmpty()) return results;
+
+        var in = String.join(",", Collections.nCopies(ids.size(), "?"));
+        var lockSections = "SELECT section_id, capacity, enrolled_count FROM sections WHERE section_id IN (" + in + ") ORDER BY section_id FOR UPDATE";
+        var existing = "SELECT section_id FROM enrollments WHERE student_id = ? AND status = 'registered' AND section_id IN (" + in + ")";
+        var takeSeat = "UPDATE sections SET enrolled_count = enrolled_count + 1 WHERE section_id = ?";
+        var insert = "INSERT INTO enrollments (student_id, section_id, status) VALUES (?, ?, 'registered') ON DUPLICATE KEY UPDATE status = 'registered'";
+        var unwait = "DELETE FROM waitlist WHERE student_id = ? AND section_id IN (" + in + ")";
+
+        try (var conn = ds.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // sections that don't exist are reported as full
+                for (int id : ids) results.put(id, SeatResult.FULL);
+                try (var ps = conn.prepareStatement(lockSections)) {
+                    for (int i = 0; i < ids.size(); i++) ps.setInt(i + 1, ids.get(i));
+                    try (var rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            if (rs.getInt("enrolled_count") < rs.getInt("capacity")) results.put(rs.getInt("section_id"), SeatResult.RESERVED);
+                        }
+                    }
+                }
+                try (var ps = conn.prepareStatement(existing)) {
+                    ps.setString(1, studentId);
+                    for (int i = 0; i < ids.size(); i++) ps.setInt(i + 2, ids.get(i));
+                    try (var rs = ps.executeQuery()) {
+                        while (rs.next()) results.put(rs.getInt("section_id"), SeatResult.ALREADY_ENROLLED);
+                    }
+                }
+                for (SeatResult r : results.values()) {
+                    if (r != SeatResult.RESERVED) {
+                        conn.rollback();
+                        return results;
+                    }
+                }
+
+                try (var seat = conn.prepareStatement(takeSeat); var ins = conn.prepareStatement(insert)) {
+                    for (int id : ids) {
+                        seat.setInt(1, id);
+                        seat.addBatch();
+                        ins.setString(1, studentId);
+                        ins.setInt(2, id);
+                        ins.addBatch();
+                    }
+                    seat.executeBatch();
+                    ins.executeBatch();
+                }
+                try (var ps = conn.prepareStatement(unwait)) {
+                    ps.setString(1, studentId);
+                    for (int i = 0; i < ids.size(); i++) ps.setInt(i + 2, ids.get(i));
+                    ps.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         }
+        for (int id : ids) waitlistDao.removed(studentId, id);
+        return results;
     }
 
     // it soft deletes a student by changing their status to 'dropped'
-    public void drop(String studentId, int sectionId) throws SQLException {
+    // in the same transaction the freed seat goes to the first waitlisted student whose timetable it fits, or back
+    // to the section if nobody fitting is waiting; a student it would clash with keeps their waitlist spot
+    // the deadline and maintenance checks of the drop cover the promotion too, it happens in the same request
+    // returns the ID of the promoted student, or null
+    public String drop(String studentId, int sectionId) throws SQLException {
+        var lockSection = "SELECT day_time, semester, year FROM sections WHERE section_id = ? FOR UPDATE";
         var sql = "UPDATE enrollments SET status = 'dropped' WHERE student_id = ? AND section_id = ? AND status = 'registered'";
+        var waiting = "SELECT w.waitlist_id, w.student_id FROM waitlist w WHERE w.section_id = ? AND NOT EXISTS "
+            + "(SELECT 1 FROM enrollments e WHERE e.student_id = w.student_id AND e.section_id = w.section_id AND e.status = 'registered') "
+            + "ORDER BY w.waitlist_id FOR UPDATE";
+        // only the candidate's sections in the dropped section's term can clash with it
+        var timetable = "SELECT s.section_id, s.day_time FROM sections s JOIN enrollments e ON s.section_id = e.section_id "
+            + "WHERE e.student_id = ? AND e.status = 'registered' AND s.semester = ? AND s.year = ?";
+        var unwait = "DELETE FROM waitlist WHERE waitlist_id = ?";
+        var promote = "INSERT INTO enrollments (student_id, section_id, status) VALUES (?, ?, 'registered') ON DUPLICATE KEY UPDATE status = 'registered'";
+        var freeSeat = "UPDATE sections SET enrolled_count = enrolled_count - 1 WHERE section_id = ? AND enrolled_count > 0";
 
-        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
-            ps.setString(1, studentId);
-            ps.setInt(2, sectionId);
-            ps.executeUpdate();
+        try (var conn = ds.getConnection()) {
+            conn.setAutoCommit(false);
+            String promoted = null;
+            try {
+                // the section row is locked first, same order as reserveSeat
+                String dayTime = null, semester = null;
+                int year = 0;
+                try (var ps = conn.prepareStatement(lockSection)) {
+                    ps.setInt(1, sectionId);
+                    try (var rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            dayTime = rs.getString("day_time");
+                            semester = rs.getString("semester");
+                            year = rs.getInt("year");
+                        }
+                    }
+                }
+                int dropped;
+                try (var ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, studentId);
+                    ps.setInt(2, sectionId);
+                    dropped = ps.executeUpdate();
+                }
+                if (dropped > 0) {
+                    WeekSlots slots = WeekSlots.forSection(sectionId, dayTime);
+                    try (var ps = conn.prepareStatement(waiting); var check = conn.prepareStatement(timetable)) {
+                        ps.setInt(1, sectionId);
+                        check.setString(2, semester);
+                        check.setInt(3, year);
+                        try (var rs = ps.executeQuery()) {
+                            // the first waitlisted student whose registered sections don't overlap this one
+                            while (promoted == null && rs.next()) {
+                                String candidate = rs.getString("student_id");
+                                if (clashes(check, candidate, slots)) continue;
+                                promoted = candidate;
+                                try (var del = conn.prepareStatement(unwait)) {
+                                    del.setInt(1, rs.getInt("waitlist_id"));
+                                    del.executeUpdate();
+                                }
+                            }
+                        }
+                    }
+                    if (promoted != null) {
+                        // the seat moves to the promoted student, so the counter stays the same
+                        try (var ps = conn.prepareStatement(promote)) {
+                            ps.setString(1, promoted);
+                            ps.setInt(2, sectionId);
+                            ps.executeUpdate();
+                        }
+                    } else {
+                        try (var ps = conn.prepareStatement(freeSeat)) {
+                            ps.setInt(1, sectionId);
+                            ps.executeUpdate();
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            if (promoted != null) waitlistDao.removed(promoted, sectionId);
+            return promoted;
         }
     }
 
+    // this is a helper function that checks a waitlisted student's registered sections against the freed one
+    private static boolean clashes(PreparedStatement timetable, String studentId, WeekSlots slots) throws SQLException {
+        if (slots.isEmpty()) return false;
+        timetable.setString(1, studentId);
+        try (var rs = timetable.executeQuery()) {
+            while (rs.next()) {
+                if (WeekSlots.forSection(rs.getInt("section_id"), rs.getString("day_time")).intersects(slots)) return true;
+            }
+        }
+        return false;
+    }
+
     // provides a list of full Student objects enrolled in a specific section 
     // combines ERP and auth data
     public List<Student> getEnrolledStudents(int sectionId) throws SQLException {
         var sql = "SELECT stu.user_id, stu.roll_no, stu.program, stu.year FROM enrollments e JOIN students stu ON e.student_id = stu.user_id WHERE e.section_id = ? ORDER BY stu.roll_no";
-        var list = new ArrayList<Student>();
+        var rows = new ArrayList<RosterRow>();
 
+        // read the whole roster from erp_db first so the connection goes back to the pool right away
         try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
             ps.setInt(1, sectionId);
             try (var rs = ps.executeQuery()) {
-                // we need AuthDao here to fetch the login details for every student found
-                var authDao = new AuthDao(DataSourceProvider.getAuthDataSource());
-
                 while (rs.next()) {
-                    String userId = rs.getString("user_id");
-                    // it fetches base user details from Auth DB
-                    User base = authDao.findByUserId(userId).orElseThrow(() -> new SQLException("Missing auth user: " + userId));
-
-                    // combine Auth data with student specific data
-                    list.add(new Student(
-                        base.getFullname(), base.getUserId(), base.getUsername(), base.getRole(),
-                        base.getPasswordHash(), base.getStatus(), base.getFailedAttempts(),
-                        base.getLockedUntil(), base.getLastLogin(),
-                        rs.getString("roll_no"), rs.getString("program"), rs.getInt("year")
-                    ));
+                    rows.add(new RosterRow(rs.getString("user_id"), rs.getString("roll_no"), rs.getString("program"), rs.getInt("year")));
                 }
             }
         }
+        if (rows.isEmpty()) return List.of();
+
+        // then fetch the login details of every student with a few chunked queries
+        var ids = new ArrayList<String>(rows.size());
+        for (RosterRow r : rows) ids.add(r.userId());
+        Map<String, User> users = authDao.findByUserIds(ids);
+
+        // combine Auth data with student specific data, keeping the roll_no order
+        var list = new ArrayList<Student>(rows.size());
+        for (RosterRow r : rows) {
+            User base = users.get(r.userId());
+            if (base == null) throw new SQLException("Missing auth user: " + r.userId());
+
+            list.add(new Student(
+                base.getFullname(), base.getUserId(), base.getUsername(), base.getRole(),
+                base.getPasswordHash(), base.getStatus(), base.getFailedAttempts(),
+                base.getLockedUntil(), base.getLastLogin(),
+                r.rollNo(), r.program(), r.year()
+            ));
+        }
         return list;
     }
 
+    // registered section IDs of every student in one term, by student ID, with one query
+    public Map<String, List<Integer>> getRegisteredSectionsForTerm(String semester, int year) throws SQLException {
+        var sql = "SELECT e.student_id, e.section_id FROM enrollments e JOIN sections s ON e.section_id = s.section_id WHERE s.semester = ? AND s.year = ? AND e.status = 'registered' ORDER BY e.student_id, e.section_id";
+        var result = new LinkedHashMap<String, List<Integer>>();
+
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+            ps.setString(1, semester);
+            ps.setInt(2, year);
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.computeIfAbsent(rs.getString("student_id"), k -> new ArrayList<>()).add(rs.getInt("section_id"));
+                }
+            }
+        }
+        return result;
+    }
+
     // used to marks a section as 'completed' for all students in it
     public void markSectionCompleted(int sectionId) throws SQLException {
         var sql = "UPDATE enrollments SET status='completed' WHERE section_id=? AND status='registered'";
@@ -124,4 +359,7 @@ public class EnrollmentDao {
             rs.getInt("year")
         );
     }
+
+    // erp_db columns of one roster row, kept until the auth users are resolved
+    private record RosterRow(String userId, String rollNo, String program, int year) {}
 }
@@ -28,29 +28,14 @@ public class FinalGradeDao {
         var assessments = assessmentDao.getBySection(sectionId);
         if (assessments.isEmpty()) return List.of();
 
-        var studentIds = getStudentIdsForSection(sectionId);
-        var slabs = slabDao.getSlabs(sectionId);
-        var results = new ArrayList<FinalGrade>();
-
-        // loop through every student to calculate their specific grade
-        for (String studentId : studentIds) {
-            double percentage = computeFinalPercentageForStudent(sectionId, studentId, assessments);
-            String letter = computeLetter(percentage, slabs);
-            
-            var section = sectionDao.getSection(sectionId);
-            var student = (Student) userDao.findFullUserByUserId(studentId);
-
-            results.add(new FinalGrade(student, section, percentage, letter));
-        }
-        return results;
+        return computeFinals(sectionId, getStudentIdsForSection(sectionId), assessments);
     }
 
     // determines the Letter Grade (A, B, C...) based on the percentage score
-    public String computeLetter(double percent, List<GradeSlab> slabs) {
+    public String computeLetter(double percent, CompiledSlabs slabs) {
         // Check against custom grade slabs defined for this section
-        for (GradeSlab s : slabs) {
-            if (percent >= s.getMin() && percent <= s.getMax()) return s.getLetter();
-        }
+        String letter = slabs.letterFor(percent);
+        if (letter != null) return letter;
         // Default grading scale if no custom slabs match
         if (percent >= 95) return "A+";
         if (percent >= 90) return "A";
@@ -62,24 +47,13 @@ public class FinalGradeDao {
 
     // calculates grades and immediately saves them to the database
     public void computeAndStoreFinals(int sectionId) throws SQLException {
-        List<FinalGrade> finals = computeFinals(sectionId);
-        for (FinalGrade fg : finals) {
-            upsertFinalGrade(fg);
-        }
+        upsertFinalGrades(computeFinals(sectionId));
     }
 
     // calculates the final grade for a single student on demand (without saving)
     public FinalGrade computeForStudent(int sectionId, String studentId) throws SQLException {
         var assessments = assessmentDao.getBySection(sectionId);
-        double percentage = computeFinalPercentageForStudent(sectionId, studentId, assessments);
-        String letter = computeLetter(percentage, slabDao.getSlabs(sectionId));
-        
-        return new FinalGrade(
-            (Student) userDao.findFullUserByUserId(studentId),
-            sectionDao.getSection(sectionId),
-            percentage,
-            letter
-        );
+        return computeFinals(sectionId, List.of(studentId), assessments).get(0);
     }
 
     // gets a list of all final grades ever recorded for a specific student
@@ -110,15 +84,53 @@ public class FinalGradeDao {
         }
     }
 
-    // sums up (marks obtained / maximum marks) * weight for all assessments
-    private double computeFinalPercentageForStudent(int sectionId, String studentId, List<Assessment> assessments) throws SQLException {
-        double total = 0;
-        for (Assessment a : assessments) {
-            Score score = scoreDao.getScore(a.getId(), studentId);
-            if (score == null) continue; // If no score, treat as 0
-            total += (score.getMarksObtained() / a.getMaxMarks()) * a.getWeight();
+    // saves many grades in one batch and one transaction
+    public void upsertFinalGrades(List<FinalGrade> grades) throws SQLException {
+        if (grades.isEmpty()) return;
+        var sql = "INSERT INTO final_grades (section_id, student_id, percentage, letter_grade) VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE percentage = VALUES(percentage), letter_grade = VALUES(letter_grade)";
+
+        try (var conn = ds.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (var ps = conn.prepareStatement(sql)) {
+                for (FinalGrade g : grades) {
+                    ps.setInt(1, g.getSection().getSectionId());
+                    ps.setString(2, g.getStudent().getUserId());
+                    ps.setDouble(3, g.getPercentage());
+                    ps.setString(4, g.getLetter());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // this is the grade engine shared by all the compute methods
+    // the section, slabs and student profiles are resolved once, every score comes in with one query,
+    // and all weighted percentages are computed in a single pass over the matrix
+    private List<FinalGrade> computeFinals(int sectionId, List<String> studentIds, List<Assessment> assessments) throws SQLException {
+        var section = sectionDao.getSection(sectionId);
+        var slabs = slabDao.getCompiled(sectionId);
+        var students = userDao.findStudentsByUserIds(studentIds);
+        var matrix = scoreDao.loadMatrix(sectionId, studentIds, assessments);
+
+        return toFinalGrades(section, students, matrix, slabs);
+    }
+
+    // turns an already loaded score matrix into final grades, without touching the database
+    // students are looked up by user ID, rows follow the matrix order
+    public List<FinalGrade> toFinalGrades(Section section, Map<String, Student> students, GradeMatrix matrix, CompiledSlabs slabs) {
+        double[] percentages = matrix.percentages();
+        var results = new ArrayList<FinalGrade>(percentages.length);
+        for (int r = 0; r < percentages.length; r++) {
+            var student = students.get(matrix.getStudentIds().get(r));
+            results.add(new FinalGrade(student, section, percentages[r], computeLetter(percentages[r], slabs)));
         }
-        return total;
+        return results;
     }
 
     // this is a helper function to get a list of Student IDs enrolled in a section
@@ -0,0 +1,71 @@
+package edu.univ.erp.data;
+
+import edu.univ.erp.domain.Assessment;
+import edu.univ.erp.domain.Score;
+import java.util.*;
+
+// holds every mark of a section as a student x assessment table of primitives
+// rows follow the order of the student IDs, columns follow the order of the assessments
+public class GradeMatrix {
+    private final List<String> studentIds;
+    private final List<Assessment> assessments;
+    private final Map<String, Integer> rows = new HashMap<>();
+    private final Map<Integer, Integer> cols = new HashMap<>();
+    private final double[][] marks;
+    private final boolean[][] present; // false where a student has no score yet
+
+    public GradeMatrix(Collection<String> studentIds, List<Assessment> assessments) {
+        this.studentIds = new ArrayList<>(new LinkedHashSet<>(studentIds));
+        this.assessments = assessments;
+        for (int r = 0; r < this.studentIds.size(); r++) rows.put(this.studentIds.get(r), r);
+        for (int c = 0; c < assessments.size(); c++) cols.put(assessments.get(c).getId(), c);
+        this.marks = new double[this.studentIds.size()][assessments.size()];
+        this.present = new boolean[this.studentIds.size()][assessments.size()];
+    }
+
+    // stores one score, scores for unknown students or assessments are ignored
+    public void put(int assessmentId, String studentId, double marksObtained) {
+        Integer r = rows.get(studentId);
+        Integer c = cols.get(assessmentId);
+        if (r == null || c == null) return;
+        marks[r][c] = marksObtained;
+        present[r][c] = true;
+    }
+
+    // row number of a student, or -1 if the student is not in the matrix
+    public int rowOf(String studentId) {
+        return rows.getOrDefault(studentId, -1);
+    }
+
+    public List<String> getStudentIds() { return studentIds; }
+    public List<Assessment> getAssessments() { return assessments; }
+
+    // sums up (marks obtained / maximum marks) * weight for every student in one pass
+    // a missing score counts as 0
+    public double[] percentages() {
+        int n = assessments.size();
+        double[] factor = new double[n];
+        for (int c = 0; c < n; c++) {
+            factor[c] = assessments.get(c).getWeight() / assessments.get(c).getMaxMarks();
+        }
+
+        double[] result = new double[marks.length];
+        for (int r = 0; r < marks.length; r++) {
+            double total = 0;
+            for (int c = 0; c < n; c++) {
+                if (present[r][c]) total += marks[r][c] * factor[c];
+            }
+            result[r] = total;
+        }
+        return result;
+    }
+
+    // the recorded scores of one student, in assessment order
+    public List<Score> scoresFor(int row) {
+        var list = new ArrayList<Score>();
+        for (int c = 0; c < assessments.size(); c++) {
+            if (present[row][c]) list.add(new Score(assessments.get(c).getId(), studentIds.get(row), marks[row][c]));
+        }
+        return list;
+    }
+}
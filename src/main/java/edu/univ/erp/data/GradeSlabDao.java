@@ -4,8 +4,14 @@ import edu.univ.erp.domain.GradeSlab;
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GradeSlabDao {
+    // compiled slabs by section ID, shared by every GradeSlabDao and dropped on every slab write
+    private static final Map<Integer, CompiledSlabs> COMPILED = new ConcurrentHashMap<>();
+    // write count per section, a load only goes into the cache if no write happened while it ran
+    private static final ConcurrentHashMap<Integer, Long> VERSIONS = new ConcurrentHashMap<>();
+
     private final DataSource ds;
 
     public GradeSlabDao(DataSource ds) {
@@ -35,6 +41,64 @@ public class GradeSlabDao {
         return list;
     }
 
+    // gets the grade slabs of many sections with one query, highest first like getSlabs
+    // returns a map of section ID -> slabs, every requested section gets a list (maybe empty)
+    public Map<Integer, List<GradeSlab>> getSlabsForSections(Collection<Integer> sectionIds) throws SQLException {
+        var map = new HashMap<Integer, List<GradeSlab>>();
+        for (int id : sectionIds) map.put(id, new ArrayList<>());
+        if (map.isEmpty()) return map;
+
+        var ids = new ArrayList<>(map.keySet());
+        var sql = "SELECT * FROM grade_slabs WHERE section_id IN (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ") ORDER BY min_percent DESC";
+
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) ps.setInt(i + 1, ids.get(i));
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    map.get(rs.getInt("section_id")).add(new GradeSlab(
+                        rs.getInt("slab_id"),
+                        rs.getInt("section_id"),
+                        rs.getString("letter"),
+                        rs.getDouble("min_percent"),
+                        rs.getDouble("max_percent")
+                    ));
+                }
+            }
+        }
+        return map;
+    }
+
+    // gets the compiled slabs of a section, only reading the database on a cache miss
+    public CompiledSlabs getCompiled(int sectionId) throws SQLException {
+        CompiledSlabs compiled = COMPILED.get(sectionId);
+        if (compiled == null) {
+            long version = versionOf(sectionId);
+            compiled = new CompiledSlabs(getSlabs(sectionId));
+            cache(sectionId, compiled, version);
+        }
+        return compiled;
+    }
+
+    // gets the compiled slabs of many sections, the missing ones are loaded with one query
+    public Map<Integer, CompiledSlabs> getCompiledForSections(Collection<Integer> sectionIds) throws SQLException {
+        var map = new HashMap<Integer, CompiledSlabs>();
+        var missing = new HashMap<Integer, Long>();
+        for (int id : sectionIds) {
+            CompiledSlabs compiled = COMPILED.get(id);
+            if (compiled != null) map.put(id, compiled);
+            else missing.put(id, versionOf(id));
+        }
+
+        if (!missing.isEmpty()) {
+            for (var e : getSlabsForSections(missing.keySet()).entrySet()) {
+                CompiledSlabs compiled = new CompiledSlabs(e.getValue());
+                cache(e.getKey(), compiled, missing.get(e.getKey()));
+                map.put(e.getKey(), compiled);
+            }
+        }
+        return map;
+    }
+
     // adds a new grade range definition (like 'A' is 90-100)
     public void insertSlab(int sectionId, String letter, double min, double max) throws SQLException {
         var sql = "INSERT INTO grade_slabs (section_id, letter, min_percent, max_percent) VALUES (?, ?, ?, ?)";
@@ -46,28 +110,57 @@ public class GradeSlabDao {
             ps.setDouble(4, max);
             ps.executeUpdate();
         }
+        invalidate(sectionId);
     }
 
     // updates an existing grade range definition
-    public void updateSlab(GradeSlab slab) throws SQLException {
-        var sql = "UPDATE grade_slabs SET letter=?, min_percent=?, max_percent=? WHERE slab_id=?";
+    // only a slab of the given section is changed, whatever section the slab object claims
+    public void updateSlab(GradeSlab slab, int sectionId) throws SQLException {
+        var sql = "UPDATE grade_slabs SET letter=?, min_percent=?, max_percent=? WHERE slab_id=? AND section_id=?";
 
         try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
             ps.setString(1, slab.getLetter());
             ps.setDouble(2, slab.getMin());
             ps.setDouble(3, slab.getMax());
             ps.setInt(4, slab.getId());
+            ps.setInt(5, sectionId);
             ps.executeUpdate();
         }
+        invalidate(sectionId);
     }
 
-    // deletes a grade range
-    public void deleteSlab(int slabId) throws SQLException {
-        var sql = "DELETE FROM grade_slabs WHERE slab_id=?";
+    // deletes a grade range of a section
+    public void deleteSlab(int slabId, int sectionId) throws SQLException {
+        var sql = "DELETE FROM grade_slabs WHERE slab_id=? AND section_id=?";
 
         try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
             ps.setInt(1, slabId);
+            ps.setInt(2, sectionId);
             ps.executeUpdate();
         }
+        invalidate(sectionId);
+    }
+
+    // this is a helper function that returns the current write count of a section
+    private static long versionOf(int sectionId) {
+        return VERSIONS.getOrDefault(sectionId, 0L);
+    }
+
+    // this is a helper function that caches a load unless a write bumped the version after the load started
+    // the version check and the put run inside one compute on VERSIONS, so they can't interleave with invalidate
+    private static void cache(int sectionId, CompiledSlabs compiled, long version) {
+        VERSIONS.compute(sectionId, (id, current) -> {
+            long now = current == null ? 0L : current;
+            if (now == version) COMPILED.put(id, compiled);
+            return current;
+        });
+    }
+
+    // this is a helper function that bumps the version and drops the cached slabs after a write
+    private static void invalidate(int sectionId) {
+        VERSIONS.compute(sectionId, (id, current) -> {
+            COMPILED.remove(id);
+            return current == null ? 1L : current + 1;
+        });
     }
 }
@@ -21,5 +21,7 @@ public class InstructorDao {
             ps.setString(3, designation);
             ps.executeUpdate();
         }
+        // drop any cached copy of this user so the new details are read next time
+        UserProfileCache.get().invalidate(userId);
     }
 }
@@ -0,0 +1,88 @@
+package edu.univ.erp.data;
+
+import edu.univ.erp.util.DataSourceProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// optional write-behind for auth_users.last_login, turned on with -Derp.auth.asyncLastLogin=true
+// logins only record the time in memory; a background thread writes everything recorded since the last
+// flush as one batched UPDATE, and several logins of the same user in between become a single row write
+// a crash can lose at most one flush interval of last_login values, nothing else goes through here
+public class LastLoginWriter {
+    private static final Logger log = LoggerFactory.getLogger(LastLoginWriter.class);
+
+    private static final boolean ENABLED = Boolean.getBoolean("erp.auth.asyncLastLogin");
+    // how often recorded logins are written, can be changed with -Derp.auth.lastLoginFlushMillis
+    private static final long FLUSH_MILLIS = Long.getLong("erp.auth.lastLoginFlushMillis", 1000);
+
+    private static LastLoginWriter instance;
+
+    private final AuthDao authDao;
+    private final ConcurrentHashMap<String, Timestamp> pending = new ConcurrentHashMap<>();
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private ScheduledExecutorService flusher;
+
+    LastLoginWriter(AuthDao authDao) {
+        this.authDao = authDao;
+    }
+
+    // only one writer exists, shared by every AuthService
+    public static synchronized LastLoginWriter get() {
+        if (instance == null) {
+            instance = new LastLoginWriter(new AuthDao(DataSourceProvider.getAuthDataSource()));
+            if (ENABLED) instance.start(FLUSH_MILLIS);
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() { return flusher != null; }
+
+    // remembers a login time, a later login of the same user replaces it
+    public void record(String userId) {
+        pending.put(userId, new Timestamp(System.currentTimeMillis()));
+        recorded.incrementAndGet();
+    }
+
+    // writes everything recorded so far; entries that fail are kept for the next flush unless newer ones arrived
+    public synchronized void flush() {
+        var batch = new HashMap<String, Timestamp>();
+        for (String userId : pending.keySet()) {
+            Timestamp t = pending.remove(userId);
+            if (t != null) batch.put(userId, t);
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            authDao.updateLastLogins(batch);
+            written.addAndGet(batch.size());
+        } catch (SQLException e) {
+            log.warn("Could not write {} last login times, keeping them for the next flush", batch.size(), e);
+            for (var e2 : batch.entrySet()) pending.putIfAbsent(e2.getKey(), e2.getValue());
+        }
+    }
+
+    public long getRecorded() { return recorded.get(); }
+    public long getWritten() { return written.get(); }
+    public int getPending() { return pending.size(); }
+
+    // starts the background flusher, and flushes once more when the app exits
+    private void start(long flushMillis) {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "last-login-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "last-login-writer-exit"));
+    }
+}
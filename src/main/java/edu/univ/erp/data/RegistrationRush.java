@@ -0,0 +1,395 @@
+package edu.univ.erp.data;
+
+import edu.univ.erp.util.DataSourceProvider;
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// "rush mode" for the first minutes of registration
+// while it is on, free seats live in memory as one atomic counter per section, so requests are admitted
+// or rejected without touching the database; admitted enrollments go through a FIFO write-behind queue
+// that a single writer thread persists in batches. When rush mode ends the queue is flushed and
+// sections.enrolled_count is recomputed from enrollments, fixing any drift (e.g. capacity edits during the rush)
+// switching on or off takes the write side of a lock that every reservation holds the read side of,
+// so no reservation can slip in between the in-memory seats and the database while they change hands
+// an enrollment that still can't be written after retries is taken back: the seat is freed, the student
+// can register again, and the failure is kept for the admin dashboard
+// the in-memory seats belong to this JVM only: rush mode assumes a single app instance takes registrations.
+// Another instance keeps reserving straight against the database, so the writer raises enrolled_count only
+// while it is below capacity, and an enrollment the database has no seat for is taken back (and listed) instead
+public class RegistrationRush {
+    private static final int BATCH_SIZE = 200;
+    private static final int WRITE_ATTEMPTS = 3;
+    // wait before the first retry of a failed batch, doubled for each later one, -Derp.rush.retryMillis
+    private static final long RETRY_MILLIS = Long.getLong("erp.rush.retryMillis", 200);
+    // failed enrollments kept for the admin dashboard
+    private static final int FAILURES_KEPT = 100;
+    private static final Pending STOP = new Pending(null, 0);
+
+    private static RegistrationRush instance;
+
+    private final DataSource ds;
+    private final EnrollmentDao enrollmentDao;
+    private final BatchWriter batchWriter;
+    private final long retryMillis;
+    private final ReentrantReadWriteLock state = new ReentrantReadWriteLock();
+    private final ConcurrentHashMap<Integer, AtomicInteger> freeSeats = new ConcurrentHashMap<>();
+    private final Set<String> registered = ConcurrentHashMap.newKeySet(); // "studentId:sectionId"
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ConcurrentHashMap<String, CompletableFuture<Boolean>> unwritten = new ConcurrentHashMap<>(); // admitted, not written yet
+    private final ConcurrentLinkedDeque<String> failures = new ConcurrentLinkedDeque<>();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean active;
+    private volatile long epoch;
+    private Thread writer;
+
+    RegistrationRush(DataSource ds, EnrollmentDao enrollmentDao, BatchWriter batchWriter, long retryMillis) {
+        this.ds = ds;
+        this.enrollmentDao = enrollmentDao;
+        this.batchWriter = batchWriter;
+        this.retryMillis = retryMillis;
+    }
+
+    // only one rush coordinator exists, shared by every service
+    public static synchronized RegistrationRush get() {
+        if (instance == null) {
+            DataSource ds = DataSourceProvider.getERPDataSource();
+            instance = new RegistrationRush(ds, new EnrollmentDao(ds), new SqlBatchWriter(ds), RETRY_MILLIS);
+        }
+        return instance;
+    }
+
+    public boolean isActive() { return active; }
+
+    // number of the current (or last) rush, a drop remembers it so a rush that started meanwhile is left alone
+    public long epoch() { return epoch; }
+
+    // loads the free seats of every section and the current registrations, then starts admitting from memory
+    public void start() throws SQLException {
+        state.writeLock().lock();
+        try {
+            if (active) return;
+            var seats = new HashMap<Integer, Integer>();
+            var keys = new HashSet<String>();
+
+            try (var conn = ds.getConnection()) {
+                try (var ps = conn.prepareStatement("SELECT section_id, capacity - enrolled_count AS free FROM sections"); var rs = ps.executeQuery()) {
+                    while (rs.next()) seats.put(rs.getInt("section_id"), Math.max(0, rs.getInt("free")));
+                }
+                try (var ps = conn.prepareStatement("SELECT student_id, section_id FROM enrollments WHERE status = 'registered'"); var rs = ps.executeQuery()) {
+                    while (rs.next()) keys.add(key(rs.getString("student_id"), rs.getInt("section_id")));
+                }
+            }
+            begin(seats, keys);
+        } finally {
+            state.writeLock().unlock();
+        }
+    }
+
+    // stops admitting, writes everything still queued and reconciles the seat counters with the database
+    // reservations wait until this is done, so none of them reads a seat counter that is still catching up
+    public void end() throws SQLException, InterruptedException {
+        state.writeLock().lock();
+        try {
+            if (!finish()) return;
+
+            var sql = "UPDATE sections s SET enrolled_count = (SELECT COUNT(*) FROM enrollments e WHERE e.section_id = s.section_id AND e.status = 'registered')";
+            try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+                ps.executeUpdate();
+            }
+        } finally {
+            state.writeLock().unlock();
+        }
+    }
+
+    // takes a seat for a registration: from memory during a rush, otherwise straight from the database
+    public EnrollmentDao.SeatResult reserve(String studentId, int sectionId) throws SQLException {
+        state.readLock().lock();
+        try {
+            return active ? admit(studentId, sectionId) : enrollmentDao.reserveSeat(studentId, sectionId);
+        } finally {
+            state.readLock().unlock();
+        }
+    }
+
+    // takes the seats of a whole cart from the database, or returns null during a rush
+    // (rush mode admits one seat at a time from memory and can't undo a queued seat)
+    public Map<Integer, EnrollmentDao.SeatResult> reserveAll(String studentId, List<Integer> sectionIds) throws SQLException {
+        state.readLock().lock();
+        try {
+            return active ? null : enrollmentDao.reserveSeats(studentId, sectionIds);
+        } finally {
+            state.readLock().unlock();
+        }
+    }
+
+    // waits until a registration admitted during the rush is in the database
+    // returns true if it is written (or was registered before the rush), false if it was taken back or is unknown
+    public boolean awaitWritten(String studentId, int sectionId, long timeoutMillis) throws InterruptedException, TimeoutException {
+        String k = key(studentId, sectionId);
+        CompletableFuture<Boolean> f = unwritten.get(k);
+        // already settled: a taken back row has also left the registered set
+        if (f == null) return registered.contains(k);
+        try {
+            return f.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    // updates the in-memory seats after a drop has been written to the database
+    // the seat moves to the promoted waitlisted student, or is given back if nobody was promoted
+    public void dropped(String studentId, int sectionId, String promoted, long dropEpoch) {
+        state.readLock().lock();
+        try {
+            if (!active || epoch != dropEpoch) return; // the rush loaded the seats after this drop
+            registered.remove(key(studentId, sectionId));
+            if (promoted != null) {
+                registered.add(key(promoted, sectionId));
+            } else {
+                AtomicInteger seats = freeSeats.get(sectionId);
+                if (seats != null) seats.incrementAndGet();
+            }
+        } finally {
+            state.readLock().unlock();
+        }
+    }
+
+    public long getAdmitted() { return admitted.get(); }
+    public long getRejected() { return rejected.get(); }
+    public long getWritten() { return written.get(); }
+    public long getFailedWrites() { return failed.get(); }
+    public int getQueueDepth() { return unwritten.size(); }
+
+    // the latest enrollments that could not be written and were taken back, newest first
+    public List<String> getRecentFailures() { return List.copyOf(failures); }
+
+    // starts a rush from the given free seats and registrations, the caller may hold the write lock already
+    void begin(Map<Integer, Integer> seats, Set<String> keys) {
+        state.writeLock().lock();
+        try {
+            if (active) return;
+            freeSeats.clear();
+            for (var e : seats.entrySet()) freeSeats.put(e.getKey(), new AtomicInteger(e.getValue()));
+            registered.clear();
+            registered.addAll(keys);
+            queue.clear();
+            unwritten.clear();
+
+            epoch++;
+            writer = new Thread(this::writeLoop, "registration-write-behind");
+            writer.setDaemon(true);
+            active = true;
+            writer.start();
+        } finally {
+            state.writeLock().unlock();
+        }
+    }
+
+    // stops admitting and waits until the writer has written (or taken back) everything queued
+    // returns false if no rush was running
+    boolean finish() throws InterruptedException {
+        state.writeLock().lock();
+        try {
+            if (!active) return false;
+            active = false;
+            queue.add(STOP);
+            writer.join();
+            writer = null;
+            freeSeats.clear();
+            registered.clear();
+            return true;
+        } finally {
+            state.writeLock().unlock();
+        }
+    }
+
+    // helper: admits or rejects a registration from memory, admitted ones are queued for the database
+    private EnrollmentDao.SeatResult admit(String studentId, int sectionId) {
+        String k = key(studentId, sectionId);
+        if (!registered.add(k)) {
+            rejected.incrementAndGet();
+            return EnrollmentDao.SeatResult.ALREADY_ENROLLED;
+        }
+
+        AtomicInteger seats = freeSeats.get(sectionId);
+        while (true) {
+            int free = seats == null ? 0 : seats.get();
+            if (free <= 0) {
+                registered.remove(k);
+                rejected.incrementAndGet();
+                return EnrollmentDao.SeatResult.FULL;
+            }
+            if (seats.compareAndSet(free, free - 1)) break;
+        }
+
+        unwritten.put(k, new CompletableFuture<>());
+        queue.add(new Pending(studentId, sectionId));
+        admitted.incrementAndGet();
+        return EnrollmentDao.SeatResult.RESERVED;
+    }
+
+    // the writer thread: takes enrollments in arrival order and writes them in batches until it reaches STOP
+    private void writeLoop() {
+        var batch = new ArrayList<Pending>(BATCH_SIZE);
+        boolean stop = false;
+        while (!stop) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue; // only finish() stops the writer, so nothing queued is left behind
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            stop = batch.remove(STOP);
+
+            if (!batch.isEmpty()) writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    // writes one batch, retrying with a growing pause; if it still fails each row is tried on its own
+    // so one bad row doesn't sink the rest, and the rows that fail then are taken back
+    private void writeBatch(List<Pending> batch) {
+        SQLException last = null;
+        for (int attempt = 1; attempt <= WRITE_ATTEMPTS; attempt++) {
+            try {
+                settle(batch, batchWriter.write(batch));
+                return;
+            } catch (SQLException e) {
+                last = e;
+            }
+            if (attempt < WRITE_ATTEMPTS && !pause(retryMillis << (attempt - 1))) break;
+        }
+
+        if (batch.size() == 1) {
+            takeBack(batch.getFirst(), last.getMessage(), true);
+            return;
+        }
+        for (Pending p : batch) {
+            try {
+                settle(List.of(p), batchWriter.write(List.of(p)));
+            } catch (SQLException e) {
+                takeBack(p, e.getMessage(), true);
+            }
+        }
+    }
+
+    // helper: after a committed write, the rows the database had no seat for are taken back and the rest are done
+    private void settle(List<Pending> batch, List<Pending> full) {
+        for (Pending p : batch) {
+            if (full.contains(p)) {
+                // another app instance took the seat, so it is not given back in memory
+                takeBack(p, "section is full in the database", false);
+            } else {
+                done(p, true);
+                written.incrementAndGet();
+            }
+        }
+    }
+
+    // helper: undoes an admitted enrollment that never reached the database and records why
+    private void takeBack(Pending p, String reason, boolean freeSeat) {
+        registered.remove(key(p.studentId(), p.sectionId()));
+        if (freeSeat) {
+            AtomicInteger seats = freeSeats.get(p.sectionId());
+            if (seats != null) seats.incrementAndGet();
+        }
+        failed.incrementAndGet();
+
+        failures.addFirst(p.studentId() + " in section " + p.sectionId() + ": " + reason);
+        while (failures.size() > FAILURES_KEPT) failures.pollLast();
+        done(p, false);
+    }
+
+    // helper: tells anyone waiting on an enrollment whether it was written
+    private void done(Pending p, boolean ok) {
+        CompletableFuture<Boolean> f = unwritten.remove(key(p.studentId(), p.sectionId()));
+        if (f != null) f.complete(ok);
+    }
+
+    // helper: sleeps between retries, false if the writer was interrupted
+    private static boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    static String key(String studentId, int sectionId) {
+        return studentId + ":" + sectionId;
+    }
+
+    // one admitted enrollment waiting to be written
+    record Pending(String studentId, int sectionId) {}
+
+    // persists a batch of enrollments in one transaction, all or nothing
+    // returns the rows left out because the section had no seat left in the database
+    interface BatchWriter {
+        List<Pending> write(List<Pending> batch) throws SQLException;
+    }
+
+    // the real writer: inserts the enrollments, takes the seats and clears the waitlist rows
+    private static class SqlBatchWriter implements BatchWriter {
+        private final DataSource ds;
+        private final WaitlistDao waitlistDao;
+
+        SqlBatchWriter(DataSource ds) {
+            this.ds = ds;
+            this.waitlistDao = new WaitlistDao(ds);
+        }
+
+        @Override
+        public List<Pending> write(List<Pending> batch) throws SQLException {
+            var takeSeat = "UPDATE sections SET enrolled_count = enrolled_count + 1 WHERE section_id = ? AND enrolled_count < capacity";
+            var insert = "INSERT INTO enrollments (student_id, section_id, status) VALUES (?, ?, 'registered') ON DUPLICATE KEY UPDATE status = 'registered'";
+            var unwait = "DELETE FROM waitlist WHERE section_id = ? AND student_id = ?";
+            var full = new ArrayList<Pending>();
+            var taken = new ArrayList<Pending>();
+
+            try (var conn = ds.getConnection()) {
+                conn.setAutoCommit(false);
+                try (var seat = conn.prepareStatement(takeSeat); var ins = conn.prepareStatement(insert); var del = conn.prepareStatement(unwait)) {
+                    // the seats go first, a row whose section is already at capacity updates nothing and is left out
+                    for (Pending p : batch) {
+                        seat.setInt(1, p.sectionId());
+                        seat.addBatch();
+                    }
+                    int[] counts = seat.executeBatch();
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (counts[i] == 0) full.add(batch.get(i));
+                        else taken.add(batch.get(i));
+                    }
+
+                    for (Pending p : taken) {
+                        ins.setString(1, p.studentId());
+                        ins.setInt(2, p.sectionId());
+                        ins.addBatch();
+                        del.setInt(1, p.sectionId());
+                        del.setString(2, p.studentId());
+                        del.addBatch();
+                    }
+                    if (!taken.isEmpty()) {
+                        ins.executeBatch();
+                        del.executeBatch();
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            for (Pending p : taken) waitlistDao.removed(p.studentId(), p.sectionId());
+            return full;
+        }
+    }
+}
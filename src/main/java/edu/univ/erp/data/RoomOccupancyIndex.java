@@ -0,0 +1,147 @@
+package edu.univ.erp.data;
+
+import edu.univ.erp.util.DataSourceProvider;
+import edu.univ.erp.util.WeekSlots;
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.*;
+
+// keeps (semester, year, room) -> week bitset of the sections booked there in memory, so a room double booking
+// is found with a few ANDs instead of scanning every section
+// the whole table is loaded in one query on first use and SectionDao keeps it up to date on every write
+public class RoomOccupancyIndex {
+    private static RoomOccupancyIndex instance;
+
+    private final DataSource ds;
+    private final Map<String, Room> rooms = new HashMap<>();       // term + room key -> bookings
+    private final Map<Integer, String> roomOfSection = new HashMap<>();
+    private final Map<String, String> roomNames = new TreeMap<>(); // room key -> room as first written
+    private boolean loaded;
+
+    RoomOccupancyIndex(DataSource ds) {
+        this.ds = ds;
+    }
+
+    // only one index exists, shared by every SectionDao
+    public static synchronized RoomOccupancyIndex get() {
+        if (instance == null) {
+            instance = new RoomOccupancyIndex(DataSourceProvider.getERPDataSource());
+        }
+        return instance;
+    }
+
+    // returns a section already booked in the room at an overlapping time, or null if the room is free
+    // the excluded section is ignored so a section being updated doesn't clash with itself
+    public synchronized Integer conflictFor(String semester, int year, String room, String dayTime, int excludeSectionId) throws SQLException {
+        if (!loaded) reload();
+
+        Room r = rooms.get(key(semester, year, room));
+        if (r == null) return null;
+
+        WeekSlots wanted = WeekSlots.parse(dayTime);
+        if (!r.union.intersects(wanted)) return null;
+
+        // only now look for which section it is
+        for (var e : r.sections.entrySet()) {
+            if (e.getKey() != excludeSectionId && e.getValue().intersects(wanted)) return e.getKey();
+        }
+        return null;
+    }
+
+    // runs a section write only if the room is free, returns the clashing section instead if it isn't
+    // the check and the write both hold the index lock, so two admins can't book the same room at once
+    public synchronized Integer bookIfFree(String semester, int year, String room, String dayTime, int excludeSectionId, Booking write) throws SQLException {
+        Integer other = conflictFor(semester, year, room, dayTime, excludeSectionId);
+        if (other != null) return other;
+        write.run(); // SectionDao records the booking through put(), which re-enters this lock
+        return null;
+    }
+
+    // every known room with no booking overlapping the given day/time in that term, in name order
+    public synchronized List<String> freeRooms(String semester, int year, String dayTime) throws SQLException {
+        if (!loaded) reload();
+
+        WeekSlots wanted = WeekSlots.parse(dayTime);
+        var free = new ArrayList<String>();
+        for (var e : roomNames.entrySet()) {
+            Room r = rooms.get(termKey(semester, year) + e.getKey());
+            if (r == null || !r.union.intersects(wanted)) free.add(e.getValue());
+        }
+        return free;
+    }
+
+    // loads every section's room and time with one query and replaces the index contents
+    public synchronized void reload() throws SQLException {
+        var sql = "SELECT section_id, room, day_time, semester, year FROM sections";
+
+        rooms.clear();
+        roomOfSection.clear();
+        roomNames.clear();
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql); var rs = ps.executeQuery()) {
+            while (rs.next()) {
+                add(rs.getInt("section_id"), rs.getString("semester"), rs.getInt("year"), rs.getString("room"), rs.getString("day_time"));
+            }
+        }
+        loaded = true;
+    }
+
+    // records a section's room and time after SectionDao has written them
+    synchronized void put(int sectionId, String semester, int year, String room, String dayTime) {
+        if (!loaded) return; // the first reload will read it from the table
+        remove(sectionId);
+        add(sectionId, semester, year, room, dayTime);
+    }
+
+    // forgets a section after SectionDao has deleted it
+    synchronized void remove(int sectionId) {
+        String k = roomOfSection.remove(sectionId);
+        if (k == null) return;
+
+        Room r = rooms.get(k);
+        r.sections.remove(sectionId);
+        if (r.sections.isEmpty()) rooms.remove(k);
+        else r.rebuild();
+    }
+
+    // this is a helper function that adds one section to the index
+    private void add(int sectionId, String semester, int year, String room, String dayTime) {
+        if (room == null || room.isBlank()) return;
+
+        String k = key(semester, year, room);
+        roomNames.putIfAbsent(roomKey(room), room.trim());
+        Room r = rooms.computeIfAbsent(k, x -> new Room());
+        r.sections.put(sectionId, WeekSlots.forSection(sectionId, dayTime));
+        r.rebuild();
+        roomOfSection.put(sectionId, k);
+    }
+
+    private static String key(String semester, int year, String room) {
+        return termKey(semester, year) + roomKey(room);
+    }
+
+    private static String termKey(String semester, int year) {
+        return (semester == null ? "" : semester.trim().toLowerCase()) + "|" + year + "|";
+    }
+
+    // "LH-101" and "lh-101 " are the same room
+    private static String roomKey(String room) {
+        return room == null ? "" : room.trim().toLowerCase();
+    }
+
+    // the database write that takes a room, run by bookIfFree
+    public interface Booking {
+        void run() throws SQLException;
+    }
+
+    // the bookings of one room in one term, with their union kept ready for the common "no clash" answer
+    private static class Room {
+        final Map<Integer, WeekSlots> sections = new HashMap<>();
+        WeekSlots union = WeekSlots.EMPTY;
+
+        void rebuild() {
+            WeekSlots u = WeekSlots.EMPTY;
+            for (WeekSlots s : sections.values()) u = u.union(s);
+            union = u;
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package edu.univ.erp.data;
 
+import edu.univ.erp.domain.Assessment;
 import edu.univ.erp.domain.Score;
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.List;
+import java.util.*;
 
 public class ScoreDao {
     private final DataSource ds;
@@ -25,6 +26,53 @@ public class ScoreDao {
         return null; // Return null if no score found
     }
 
+    // loads every score of a section in one query into a student x assessment matrix
+    // when only one student is asked for, the query is narrowed down to that student
+    public GradeMatrix loadMatrix(int sectionId, Collection<String> studentIds, List<Assessment> assessments) throws SQLException {
+        var matrix = new GradeMatrix(studentIds, assessments);
+        if (matrix.getStudentIds().isEmpty() || assessments.isEmpty()) return matrix;
+
+        boolean single = matrix.getStudentIds().size() == 1;
+        var sql = "SELECT sc.assessment_id, sc.student_id, sc.marks_obtained FROM scores sc JOIN assessments a ON a.assessment_id = sc.assessment_id WHERE a.section_id = ?"
+            + (single ? " AND sc.student_id = ?" : "");
+
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, sectionId);
+            if (single) ps.setString(2, matrix.getStudentIds().get(0));
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    matrix.put(rs.getInt("assessment_id"), rs.getString("student_id"), rs.getDouble("marks_obtained"));
+                }
+            }
+        }
+        return matrix;
+    }
+
+    // loads one student's scores for many sections with one query
+    // returns a map of section ID -> single row matrix for that student
+    public Map<Integer, GradeMatrix> loadStudentMatrices(String studentId, Map<Integer, List<Assessment>> assessmentsBySection) throws SQLException {
+        var matrices = new HashMap<Integer, GradeMatrix>();
+        for (var e : assessmentsBySection.entrySet()) {
+            matrices.put(e.getKey(), new GradeMatrix(List.of(studentId), e.getValue()));
+        }
+        if (matrices.isEmpty()) return matrices;
+
+        var ids = new ArrayList<>(matrices.keySet());
+        var sql = "SELECT sc.assessment_id, sc.student_id, sc.marks_obtained, a.section_id FROM scores sc JOIN assessments a ON a.assessment_id = sc.assessment_id WHERE sc.student_id = ? AND a.section_id IN ("
+            + String.join(",", Collections.nCopies(ids.size(), "?")) + ")";
+
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+            ps.setString(1, studentId);
+            for (int i = 0; i < ids.size(); i++) ps.setInt(i + 2, ids.get(i));
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    matrices.get(rs.getInt("section_id")).put(rs.getInt("assessment_id"), rs.getString("student_id"), rs.getDouble("marks_obtained"));
+                }
+            }
+        }
+        return matrices;
+    }
+
     // bulk saves a list of scores efficiently 
     // used for Dashboards
     public void upsertScores(List<Score> scores) throws SQLException {
@@ -0,0 +1,88 @@
+package edu.univ.erp.data;
+
+import edu.univ.erp.domain.SectionAvailability;
+import edu.univ.erp.util.DataSourceProvider;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// short lived shared copy of the open seat feed (sections with capacity and registered counts)
+// every student browsing the same course or term reads the same list, and when it is older than the
+// refresh interval only one caller reloads it while the others wait for that result
+// a registration is still checked against the database, so a few seconds of staleness only affects what is shown
+public class SeatAvailabilityCache {
+    // how long a loaded list is shown, can be changed with -Derp.availability.ttlMillis
+    private static final long TTL_MILLIS = Long.getLong("erp.availability.ttlMillis", 3000);
+
+    private static SeatAvailabilityCache instance;
+
+    private final SectionDao sectionDao;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    SeatAvailabilityCache(SectionDao sectionDao, long ttlMillis) {
+        this.sectionDao = sectionDao;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    // only one availability cache exists, shared by every service
+    public static synchronized SeatAvailabilityCache get() {
+        if (instance == null) {
+            instance = new SeatAvailabilityCache(new SectionDao(DataSourceProvider.getERPDataSource()), TTL_MILLIS);
+        }
+        return instance;
+    }
+
+    // sections of a course with their seats
+    public List<SectionAvailability> forCourse(int courseId) throws SQLException {
+        String key = "course:" + courseId;
+        Entry e = fresh(key);
+        if (e != null) return e.sections;
+
+        synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+            e = fresh(key);
+            if (e != null) return e.sections;
+            return store(key, sectionDao.getAvailabilityForCourse(courseId));
+        }
+    }
+
+    // sections of a whole term with their seats
+    public List<SectionAvailability> forTerm(String semester, int year) throws SQLException {
+        String key = "term:" + semester.trim().toLowerCase() + "|" + year;
+        Entry e = fresh(key);
+        if (e != null) return e.sections;
+
+        synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+            e = fresh(key);
+            if (e != null) return e.sections;
+            return store(key, sectionDao.getAvailabilityForTerm(semester, year));
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getLoads() { return loads.get(); }
+
+    // this is a helper function that returns the cached entry if it is still within the refresh interval
+    private Entry fresh(String key) {
+        Entry e = entries.get(key);
+        if (e != null && System.nanoTime() - e.loadedAt <= ttlNanos) {
+            hits.incrementAndGet();
+            return e;
+        }
+        return null;
+    }
+
+    private List<SectionAvailability> store(String key, List<SectionAvailability> sections) {
+        List<SectionAvailability> copy = List.copyOf(sections);
+        entries.put(key, new Entry(copy, System.nanoTime()));
+        loads.incrementAndGet();
+        return copy;
+    }
+
+    // one loaded feed
+    private record Entry(List<SectionAvailability> sections, long loadedAt) {}
+}
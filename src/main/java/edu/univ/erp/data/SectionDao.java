@@ -1,30 +1,44 @@
 package edu.univ.erp.data;
 
+import edu.univ.erp.domain.Course;
 import edu.univ.erp.domain.Instructor;
 import edu.univ.erp.domain.Section;
+import edu.univ.erp.domain.SectionAvailability;
+import edu.univ.erp.domain.User;
 import edu.univ.erp.util.DataSourceProvider;
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
+// sections.enrolled_count holds the number of 'registered' enrollments of a section and is kept up to date by EnrollmentDao
+// existing databases need it added once:
+//   ALTER TABLE sections ADD COLUMN enrolled_count INT NOT NULL DEFAULT 0;
+//   UPDATE sections s SET enrolled_count = (SELECT COUNT(*) FROM enrollments e WHERE e.section_id = s.section_id AND e.status = 'registered');
 public class SectionDao {
+    // one JOIN in erp_db brings the section, its course and the instructor's profile columns together
+    private static final String HYDRATED_SELECT =
+        "SELECT s.section_id, s.course_id, s.instructor_id, s.day_time, s.room, s.capacity, s.semester, s.year, s.enrolled_count, " +
+        "c.code, c.title, c.credits, i.user_id AS profile_id, i.department, i.designation " +
+        "FROM sections s LEFT JOIN courses c ON c.course_id = s.course_id LEFT JOIN instructors i ON i.user_id = s.instructor_id";
+
     private final DataSource ds;
-    private final CourseDao courseDao;
-    private final UserDao userDao;
+    private final AuthDao authDao;
+    private final SectionOwnershipIndex owners;
+    private final RoomOccupancyIndex rooms;
 
     public SectionDao(DataSource ds) {
         this.ds = ds;
-        this.courseDao = new CourseDao(ds);
-        // Initialize UserDao with both Auth and ERP data sources
-        this.userDao = new UserDao(DataSourceProvider.getAuthDataSource(), ds);
+        // instructor names and usernames live in auth_db
+        this.authDao = new AuthDao(DataSourceProvider.getAuthDataSource());
+        this.owners = SectionOwnershipIndex.get();
+        this.rooms = RoomOccupancyIndex.get();
     }
 
     // creates a new section for a course
     public void insertSection(int courseId, String instructorId, String dayTime, String room, int capacity, String semester, int year) throws SQLException {
         var sql = "INSERT INTO sections (course_id, instructor_id, day_time, room, capacity, semester, year) VALUES (?,?,?,?,?,?,?)";
 
-        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setInt(1, courseId);
             ps.setString(2, instructorId);
             ps.setString(3, dayTime);
@@ -33,34 +47,24 @@ public class SectionDao {
             ps.setString(6, semester);
             ps.setInt(7, year);
             ps.executeUpdate();
+            try (var keys = ps.getGeneratedKeys()) {
+                if (keys.next()) {
+                    owners.put(keys.getInt(1), instructorId);
+                    rooms.put(keys.getInt(1), semester, year, room, dayTime);
+                }
+            }
         }
     }
 
     // finds a specific section by its ID
     public Section getSection(int sectionId) throws SQLException {
-        var sql = "SELECT * FROM sections WHERE section_id=?";
-
-        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, sectionId);
-            try (var rs = ps.executeQuery()) {
-                if (rs.next()) return mapRow(rs);
-            }
-        }
-        return null;
+        var list = loadHydrated(HYDRATED_SELECT + " WHERE s.section_id=?", sectionId);
+        return list.isEmpty() ? null : list.get(0);
     }
 
     // gets a list of all sections taught by a specific instructor
     public List<Section> getSectionsByInstructor(String instructorId) throws SQLException {
-        var sql = "SELECT * FROM sections WHERE instructor_id=?";
-        var list = new ArrayList<Section>();
-
-        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
-            ps.setString(1, instructorId);
-            try (var rs = ps.executeQuery()) {
-                while (rs.next()) list.add(mapRow(rs));
-            }
-        }
-        return list;
+        return loadHydrated(HYDRATED_SELECT + " WHERE s.instructor_id=?", instructorId);
     }
 
     // assigns a different instructor to a section
@@ -72,6 +76,7 @@ public class SectionDao {
             ps.setInt(2, sectionId);
             ps.executeUpdate();
         }
+        owners.put(sectionId, instructorId);
     }
 
     // updates all details of a section
@@ -89,6 +94,8 @@ public class SectionDao {
             ps.setInt(8, sectionId);
             ps.executeUpdate();
         }
+        owners.put(sectionId, instructorId);
+        rooms.put(sectionId, semester, year, room, dayTime);
     }
 
     // removes a section from the database
@@ -99,35 +106,22 @@ public class SectionDao {
             ps.setInt(1, sectionId);
             ps.executeUpdate();
         }
+        owners.remove(sectionId);
+        rooms.remove(sectionId);
     }
 
     // gets a list of every section in the system
     public List<Section> getAllSections() throws SQLException {
-        var sql = "SELECT * FROM sections";
-        var list = new ArrayList<Section>();
-
-        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql); var rs = ps.executeQuery()) {
-            while (rs.next()) list.add(mapRow(rs));
-        }
-        return list;
+        return loadHydrated(HYDRATED_SELECT);
     }
 
     // finds all sections available for a specific course (when a student registers)
     public List<Section> findSectionsForRegistration(int courseId) throws SQLException {
-        var sql = "SELECT s.* FROM sections s WHERE s.course_id = ? ORDER BY s.section_id";
-        var list = new ArrayList<Section>();
-
-        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, courseId);
-            try (var rs = ps.executeQuery()) {
-                while (rs.next()) list.add(mapRow(rs));
-            }
-        }
-        return list;
+        return loadHydrated(HYDRATED_SELECT + " WHERE s.course_id = ? ORDER BY s.section_id", courseId);
     }
 
-    // checks if there is space available in the section (enrolled < capacity)
-    public boolean hasSeat(int sectionId) throws SQLException {
+    // Checks if there are any students currently enrolled in the section
+    public boolean hasStudents(int sectionId) throws SQLException {
         var sql = "SELECT (SELECT COUNT(*) FROM enrollments WHERE section_id=? AND status='registered') AS enrolled, (SELECT capacity FROM sections WHERE section_id=?) AS cap";
 
         try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
@@ -135,55 +129,190 @@ public class SectionDao {
             ps.setInt(2, sectionId);
             try (var rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return rs.getInt("enrolled") < rs.getInt("cap");
+                    return rs.getInt("enrolled") > 0;
                 }
             }
         }
         return false;
     }
 
-    // Checks if there are any students currently enrolled in the section
-    public boolean hasStudents(int sectionId) throws SQLException {
-        var sql = "SELECT (SELECT COUNT(*) FROM enrollments WHERE section_id=? AND status='registered') AS enrolled, (SELECT capacity FROM sections WHERE section_id=?) AS cap";
+    // gets all sections that a specific student is currently registered for
+    public List<Section> getSectionsForStudent(String studentId) throws SQLException {
+        return loadHydrated(HYDRATED_SELECT + " JOIN enrollments e ON s.section_id = e.section_id WHERE e.student_id = ? AND e.status='registered'", studentId);
+    }
+
+    // gets every section of one term (e.g. "Monsoon", 2025)
+    public List<Section> getSectionsForTerm(String semester, int year) throws SQLException {
+        return loadHydrated(HYDRATED_SELECT + " WHERE s.semester = ? AND s.year = ? ORDER BY s.section_id", semester, year);
+    }
+
+    // day/time text of the sections a student is registered in for one term, by section ID (used for timetable clash checks)
+    public Map<Integer, String> getDayTimesForStudent(String studentId, String semester, int year) throws SQLException {
+        var sql = "SELECT s.section_id, s.day_time FROM sections s JOIN enrollments e ON s.section_id = e.section_id " +
+            "WHERE e.student_id = ? AND e.status='registered' AND s.semester = ? AND s.year = ?";
+        var result = new LinkedHashMap<Integer, String>();
 
         try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, sectionId);
-            ps.setInt(2, sectionId);
+            ps.setString(1, studentId);
+            ps.setString(2, semester);
+            ps.setInt(3, year);
             try (var rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("enrolled") > 0;
+                while (rs.next()) result.put(rs.getInt("section_id"), rs.getString("day_time"));
+            }
+        }
+        return result;
+    }
+
+    // day/time text and term of the given sections, by section ID, with one query
+    public Map<Integer, SectionTime> getDayTimes(Collection<Integer> sectionIds) throws SQLException {
+        var result = new LinkedHashMap<Integer, SectionTime>();
+        if (sectionIds.isEmpty()) return result;
+
+        var sql = "SELECT section_id, day_time, semester, year FROM sections WHERE section_id IN (" + String.join(",", Collections.nCopies(sectionIds.size(), "?")) + ")";
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (Integer id : sectionIds) ps.setInt(i++, id);
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt("section_id");
+                    result.put(id, new SectionTime(id, rs.getString("day_time"), rs.getString("semester"), rs.getInt("year")));
                 }
             }
         }
-        return false;
+        return result;
     }
 
-    // gets all sections that a specific student is currently registered for
-    public List<Section> getSectionsForStudent(String studentId) throws SQLException {
-        var sql = "SELECT s.* FROM sections s JOIN enrollments e ON s.section_id = e.section_id WHERE e.student_id = ? AND e.status='registered'";
-        var list = new ArrayList<Section>();
+    // every section of a course with its registered count, from one query on the seat counter
+    public List<SectionAvailability> getAvailabilityForCourse(int courseId) throws SQLException {
+        return loadAvailability(HYDRATED_SELECT + " WHERE s.course_id = ? ORDER BY s.section_id", courseId);
+    }
+
+    // every section of a term with its registered count, from one query on the seat counter
+    public List<SectionAvailability> getAvailabilityForTerm(String semester, int year) throws SQLException {
+        return loadAvailability(HYDRATED_SELECT + " WHERE s.semester = ? AND s.year = ? ORDER BY s.course_id, s.section_id", semester, year);
+    }
+
+    // time and seat counts of the sections of the given courses in one term, with one query (used by the schedule solver)
+    public List<SeatRow> getSeatRowsForCourses(Collection<Integer> courseIds, String semester, int year) throws SQLException {
+        var result = new ArrayList<SeatRow>();
+        if (courseIds.isEmpty()) return result;
+
+        var sql = "SELECT section_id, course_id, day_time, capacity, enrolled_count FROM sections WHERE course_id IN (" +
+            String.join(",", Collections.nCopies(courseIds.size(), "?")) + ") AND semester = ? AND year = ? ORDER BY section_id";
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (Integer id : courseIds) ps.setInt(i++, id);
+            ps.setString(i++, semester);
+            ps.setInt(i, year);
+            readSeatRows(ps, result);
+        }
+        return result;
+    }
+
+    // time and seat counts of the sections a student is registered in for one term
+    public List<SeatRow> getSeatRowsForStudent(String studentId, String semester, int year) throws SQLException {
+        var sql = "SELECT s.section_id, s.course_id, s.day_time, s.capacity, s.enrolled_count FROM sections s JOIN enrollments e ON s.section_id = e.section_id " +
+            "WHERE e.student_id = ? AND e.status = 'registered' AND s.semester = ? AND s.year = ? ORDER BY s.section_id";
+        var result = new ArrayList<SeatRow>();
 
         try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
             ps.setString(1, studentId);
+            ps.setString(2, semester);
+            ps.setInt(3, year);
+            readSeatRows(ps, result);
+        }
+        return result;
+    }
+
+    // this is a helper function that reads the seat rows of a prepared query
+    private static void readSeatRows(PreparedStatement ps, List<SeatRow> result) throws SQLException {
+        try (var rs = ps.executeQuery()) {
+            while (rs.next()) {
+                result.add(new SeatRow(rs.getInt("section_id"), rs.getInt("course_id"), rs.getString("day_time"),
+                    rs.getInt("capacity"), rs.getInt("enrolled_count")));
+            }
+        }
+    }
+
+    // this is a helper function that runs a hydrated section query and builds the section objects
+    // erp_db is read in one go and the connection is released before auth_db is touched,
+    // then all instructors are resolved with one batched lookup instead of one per row
+    private List<Section> loadHydrated(String sql, Object... params) throws SQLException {
+        return loadHydrated(null, sql, params);
+    }
+
+    // this is a helper function that runs a hydrated query and pairs each section with its enrolled_count
+    private List<SectionAvailability> loadAvailability(String sql, Object... params) throws SQLException {
+        var counts = new HashMap<Integer, Integer>();
+        var sections = loadHydrated(counts, sql, params);
+        var list = new ArrayList<SectionAvailability>(sections.size());
+        for (Section s : sections) list.add(new SectionAvailability(s, counts.get(s.getSectionId())));
+        return list;
+    }
+
+    // the hydrated query itself, also filling registered counts by section ID when a map is given
+    private List<Section> loadHydrated(Map<Integer, Integer> registered, String sql, Object... params) throws SQLException {
+        var rows = new ArrayList<SectionRow>();
+        var courses = new HashMap<Integer, Course>();
+
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
             try (var rs = ps.executeQuery()) {
-                while (rs.next()) list.add(mapRow(rs));
+                while (rs.next()) {
+                    int courseId = rs.getInt("course_id");
+                    // sections of the same course share one Course object
+                    if (rs.getString("code") != null && !courses.containsKey(courseId)) {
+                        courses.put(courseId, new Course(courseId, rs.getString("code"), rs.getString("title"), rs.getInt("credits")));
+                    }
+                    if (registered != null) registered.put(rs.getInt("section_id"), rs.getInt("enrolled_count"));
+                    rows.add(new SectionRow(
+                        rs.getInt("section_id"), courseId, rs.getString("instructor_id"),
+                        rs.getString("day_time"), rs.getString("room"), rs.getInt("capacity"),
+                        rs.getString("semester"), rs.getInt("year"),
+                        rs.getString("profile_id") != null, rs.getString("department"), rs.getString("designation")
+                    ));
+                }
+            }
+        }
+        if (rows.isEmpty()) return List.of();
+
+        var instructorIds = new HashSet<String>();
+        for (SectionRow r : rows) {
+            if (r.instructorId() != null) instructorIds.add(r.instructorId());
+        }
+        Map<String, User> users = authDao.findByUserIds(instructorIds);
+
+        var instructors = new HashMap<String, Instructor>();
+        var list = new ArrayList<Section>(rows.size());
+        for (SectionRow r : rows) {
+            Instructor instructor = null;
+            User base = r.instructorId() == null ? null : users.get(r.instructorId());
+            if (base != null && r.hasProfile()) {
+                instructor = instructors.computeIfAbsent(base.getUserId(), id -> new Instructor(
+                    base.getFullname(), base.getUserId(), base.getUsername(), base.getRole(),
+                    base.getPasswordHash(), base.getStatus(), base.getFailedAttempts(),
+                    base.getLockedUntil(), base.getLastLogin(),
+                    r.department(), r.designation()
+                ));
             }
+            list.add(new Section(
+                r.sectionId(), courses.get(r.courseId()), instructor,
+                r.dayTime(), r.room(), r.capacity(), r.semester(), r.year()
+            ));
         }
         return list;
     }
 
-    // this is a helper function that maps a database row to a section object 
-    // loads course and instructor details
-    private Section mapRow(ResultSet rs) throws SQLException {
-        return new Section(
-            rs.getInt("section_id"),
-            courseDao.getCourse(rs.getInt("course_id")),
-            (Instructor) userDao.findFullUserByUserId(rs.getString("instructor_id")),
-            rs.getString("day_time"),
-            rs.getString("room"),
-            rs.getInt("capacity"),
-            rs.getString("semester"),
-            rs.getInt("year")
-        );
+    // day/time text and term of one section
+    public record SectionTime(int sectionId, String dayTime, String semester, int year) {}
+
+    // time and seats of one section, without its course or instructor
+    public record SeatRow(int sectionId, int courseId, String dayTime, int capacity, int enrolled) {
+        public int free() { return Math.max(0, capacity - enrolled); }
     }
+
+    // raw erp_db columns of one section row, kept until the instructors are resolved
+    // hasProfile is true when the instructors row exists, its department and designation may still be NULL
+    private record SectionRow(int sectionId, int courseId, String instructorId, String dayTime, String room,
+                              int capacity, String semester, int year, boolean hasProfile, String department, String designation) {}
 }
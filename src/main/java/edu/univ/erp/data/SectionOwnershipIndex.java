@@ -0,0 +1,105 @@
+package edu.univ.erp.data;
+
+import edu.univ.erp.util.DataSourceProvider;
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// keeps section ID -> instructor ID in memory so ownership checks don't need a database round trip
+// the whole table is loaded in one query on first use and SectionDao keeps it up to date on every write
+// another app instance can reassign a section without this one seeing the write, so an entry is only
+// trusted for a short time and then read again from the database
+public class SectionOwnershipIndex {
+    // how long an owner is trusted before it is read again, can be changed with -Derp.owners.ttlMillis
+    private static final long TTL_MILLIS = Long.getLong("erp.owners.ttlMillis", 30_000);
+
+    private static SectionOwnershipIndex instance;
+
+    private final DataSource ds;
+    private final long ttlNanos;
+    private volatile ConcurrentHashMap<Integer, Entry> owners = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    SectionOwnershipIndex(DataSource ds, long ttlMillis) {
+        this.ds = ds;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    // only one index exists, shared by every SectionDao
+    public static synchronized SectionOwnershipIndex get() {
+        if (instance == null) {
+            instance = new SectionOwnershipIndex(DataSourceProvider.getERPDataSource(), TTL_MILLIS);
+        }
+        return instance;
+    }
+
+    // returns the instructor ID of a section, or null if the section doesn't exist or has no instructor
+    public String ownerOf(int sectionId) throws SQLException {
+        if (!loaded) reload();
+
+        Entry e = owners.get(sectionId);
+        if (e != null && System.nanoTime() - e.loadedAt <= ttlNanos) return e.owner;
+
+        // a section created or reassigned by another app instance, or an entry that is too old: read it once
+        long started = System.nanoTime();
+        String owner = loadOwner(sectionId);
+        store(sectionId, owner, started);
+        return owner;
+    }
+
+    // checks if the instructor owns the section
+    public boolean isOwner(int sectionId, String instructorId) throws SQLException {
+        return instructorId != null && instructorId.equals(ownerOf(sectionId));
+    }
+
+    // loads every section owner with one query and swaps in the new index
+    public synchronized void reload() throws SQLException {
+        var sql = "SELECT section_id, instructor_id FROM sections";
+        var fresh = new ConcurrentHashMap<Integer, Entry>();
+        long started = System.nanoTime();
+
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql); var rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String instructorId = rs.getString("instructor_id");
+                if (instructorId != null) fresh.put(rs.getInt("section_id"), new Entry(instructorId, started));
+            }
+        }
+        owners = fresh;
+        loaded = true;
+    }
+
+    // records a new owner after SectionDao has written it
+    synchronized void put(int sectionId, String instructorId) {
+        if (instructorId == null) owners.remove(sectionId);
+        else owners.put(sectionId, new Entry(instructorId, System.nanoTime()));
+    }
+
+    // forgets a section after SectionDao has deleted it
+    synchronized void remove(int sectionId) {
+        owners.remove(sectionId);
+    }
+
+    // this is a helper function that keeps a value read from the database, unless a write recorded after the read started
+    private synchronized void store(int sectionId, String owner, long started) {
+        Entry current = owners.get(sectionId);
+        if (current != null && current.loadedAt > started) return;
+        if (owner == null) owners.remove(sectionId);
+        else owners.put(sectionId, new Entry(owner, started));
+    }
+
+    // this is a helper function to read the owner of a single section
+    private String loadOwner(int sectionId) throws SQLException {
+        var sql = "SELECT instructor_id FROM sections WHERE section_id=?";
+
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, sectionId);
+            try (var rs = ps.executeQuery()) {
+                if (rs.next()) return rs.getString("instructor_id");
+            }
+        }
+        return null;
+    }
+
+    // one owner and when it was read
+    private record Entry(String owner, long loadedAt) {}
+}
@@ -0,0 +1,26 @@
+package edu.univ.erp.data;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+
+public class SettingsDao {
+    private final DataSource ds;
+
+    public SettingsDao(DataSource ds) {
+        this.ds = ds;
+    }
+
+    // reads every row of the settings table in one query, except maintenance_mode which MaintenanceState reads itself
+    // returns a map of setting_key -> setting_value
+    public Map<String, String> loadAll() throws SQLException {
+        var sql = "SELECT setting_key, setting_value FROM settings WHERE setting_key <> 'maintenance_mode'";
+        var map = new HashMap<String, String>();
+
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql); var rs = ps.executeQuery()) {
+            while (rs.next()) map.put(rs.getString("setting_key"), rs.getString("setting_value"));
+        }
+        return map;
+    }
+}
@@ -21,5 +21,7 @@ public class StudentDao {
             ps.setInt(4, year);
             ps.executeUpdate();
         }
+        // drop any cached copy of this user so the new details are read next time
+        UserProfileCache.get().invalidate(userId);
     }
 }
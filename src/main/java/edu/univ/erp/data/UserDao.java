@@ -3,35 +3,82 @@ package edu.univ.erp.data;
 import edu.univ.erp.domain.*;
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
 
 public class UserDao {
     private final DataSource authDS;
     private final DataSource erpDS;
+    private final UserProfileCache profiles;
 
     public UserDao(DataSource authDS, DataSource erpDS) {
         this.authDS = authDS;
         this.erpDS = erpDS;
+        this.profiles = UserProfileCache.get();
     }
 
     // this finds a user by username and loads their specific profile like Student/Instructor
+    // always read fresh (this is what becomes the logged in user), the result also refreshes the profile cache
     public User findFullUserByUsername(String username) throws SQLException {
         var authDao = new AuthDao(authDS);
         var opt = authDao.findByUsername(username);
 
         if (opt.isEmpty()) return null;
-        return enrichUser(opt.get());
+        User user = enrichUser(opt.get());
+        profiles.put(user);
+        return user;
     }
 
     // finds a user by user ID and loads their specific profile like Student/Instructor
+    // served from the profile cache when possible
     public User findFullUserByUserId(String userId) throws SQLException {
+        User cached = profiles.lookup(userId);
+        if (cached != null) return cached;
+
         var authDao = new AuthDao(authDS);
         var opt = authDao.findByUserId(userId);
 
         if (opt.isEmpty()) return null;
-        return enrichUser(opt.get());
+        User user = enrichUser(opt.get());
+        profiles.put(user);
+        return user;
+    }
+
+    // loads many student profiles at once: chunked batch lookups in auth_db and then in erp_db
+    // returns a map of user ID -> student, unknown users are missing from the map
+    public Map<String, Student> findStudentsByUserIds(Collection<String> userIds) throws SQLException {
+        var map = new HashMap<String, Student>();
+        if (userIds.isEmpty()) return map;
+
+        Map<String, User> users = new AuthDao(authDS).findByUserIds(userIds);
+        if (users.isEmpty()) return map;
+
+        var ids = new ArrayList<>(users.keySet());
+        try (var conn = erpDS.getConnection()) {
+            for (int from = 0; from < ids.size(); from += AuthDao.IN_CHUNK_SIZE) {
+                var chunk = ids.subList(from, Math.min(from + AuthDao.IN_CHUNK_SIZE, ids.size()));
+                var sql = "SELECT user_id, roll_no, program, year FROM students WHERE user_id IN (" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+
+                try (var ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) ps.setString(i + 1, chunk.get(i));
+                    try (var rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            User base = users.get(rs.getString("user_id"));
+                            map.put(base.getUserId(), new Student(
+                                base.getFullname(), base.getUserId(), base.getUsername(), base.getRole(),
+                                base.getPasswordHash(), base.getStatus(), base.getFailedAttempts(),
+                                base.getLockedUntil(), base.getLastLogin(),
+                                rs.getString("roll_no"), rs.getString("program"), rs.getInt("year")
+                            ));
+                        }
+                    }
+                }
+            }
+        }
+
+        for (String id : ids) {
+            if (!map.containsKey(id)) throw new SQLException("Student profile missing for user_id: " + id);
+        }
+        return map;
     }
 
     // this is a helper function that takes a basic user and decides if we need to fetch extra Student or Instructor details
@@ -101,15 +148,43 @@ public class UserDao {
         return list;
     }
 
-    // filters all users to find only instructors
-    // then loads their full details
+    // the instructor directory used to fill dropdowns
+    // only instructor rows are read from auth_db (no password hashes or login state),
+    // then department and designation of all of them come from one erp_db query
+    // so it always costs two queries no matter how many users exist
     public List<Instructor> findAllInstructors() throws SQLException {
-        var list = new ArrayList<Instructor>();
-        for (User user : findAllUsers()) {
-            if (Objects.equals(user.getRole(), "instructor")) {
-                list.add(loadInstructor(user));
+        var sql = "SELECT user_id, username, full_name, role, status FROM auth_users WHERE role = 'instructor' ORDER BY full_name";
+        var bases = new ArrayList<User>();
+
+        try (var conn = authDS.getConnection(); var ps = conn.prepareStatement(sql); var rs = ps.executeQuery()) {
+            while (rs.next()) {
+                bases.add(new User(
+                    rs.getString("full_name"), rs.getString("user_id"), rs.getString("username"),
+                    rs.getString("role"), null, rs.getString("status"), 0, null, null
+                ));
+            }
+        }
+        if (bases.isEmpty()) return List.of();
+
+        var profiles = new HashMap<String, String[]>();
+        var profileSql = "SELECT user_id, department, designation FROM instructors";
+        try (var conn = erpDS.getConnection(); var ps = conn.prepareStatement(profileSql); var rs = ps.executeQuery()) {
+            while (rs.next()) {
+                profiles.put(rs.getString("user_id"), new String[] { rs.getString("department"), rs.getString("designation") });
             }
         }
+
+        var list = new ArrayList<Instructor>(bases.size());
+        for (User base : bases) {
+            String[] p = profiles.get(base.getUserId());
+            if (p == null) throw new SQLException("Instructor profile missing for user_id: " + base.getUserId());
+
+            list.add(new Instructor(
+                base.getFullname(), base.getUserId(), base.getUsername(), base.getRole(),
+                null, base.getStatus(), 0, null, null,
+                p[0], p[1]
+            ));
+        }
         return list;
     }
 
@@ -0,0 +1,76 @@
+package edu.univ.erp.data;
+
+import edu.univ.erp.domain.User;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// a size bounded, time limited cache of full user profiles keyed by user ID, used by UserDao.findFullUserByUserId
+// the least recently used profile is dropped when the cache is full, and entries expire after the TTL
+// AuthService.login never reads from here: it always goes to auth_users, so password hashes and lock state are never stale there
+public class UserProfileCache {
+    // can be changed with -Derp.profiles.maxEntries and -Derp.profiles.ttlMillis
+    private static final int MAX_ENTRIES = Integer.getInteger("erp.profiles.maxEntries", 1000);
+    private static final long TTL_MILLIS = Long.getLong("erp.profiles.ttlMillis", 60000);
+
+    private static UserProfileCache instance;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+
+    UserProfileCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        // access order makes the first entry the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > UserProfileCache.this.maxEntries;
+            }
+        };
+    }
+
+    // only one profile cache exists, shared by every UserDao
+    public static synchronized UserProfileCache get() {
+        if (instance == null) {
+            instance = new UserProfileCache(MAX_ENTRIES, TTL_MILLIS);
+        }
+        return instance;
+    }
+
+    // returns the cached profile, or null if it is missing or expired
+    public synchronized User lookup(String userId) {
+        Entry e = entries.get(userId);
+        if (e == null) return null;
+        if (System.nanoTime() - e.loadedAt > ttlNanos) {
+            entries.remove(userId);
+            return null;
+        }
+        return e.user;
+    }
+
+    public synchronized void put(User user) {
+        entries.put(user.getUserId(), new Entry(user, System.nanoTime()));
+    }
+
+    // drops one user's profile, called whenever their auth or profile rows change
+    public synchronized void invalidate(String userId) {
+        entries.remove(userId);
+    }
+
+    // drops a profile by username, for writes that only know the username
+    // usernames are matched the way the auth_users collation does, ignoring case and surrounding spaces
+    public synchronized void invalidateUsername(String username) {
+        if (username == null) return;
+        String wanted = username.trim();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            String cached = it.next().user.getUsername();
+            if (cached != null && cached.trim().equalsIgnoreCase(wanted)) it.remove();
+        }
+    }
+
+    // one cached profile and when it was loaded
+    private record Entry(User user, long loadedAt) {}
+}
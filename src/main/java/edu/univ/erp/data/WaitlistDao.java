@@ -0,0 +1,107 @@
+package edu.univ.erp.data;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// per section FIFO waitlist, stored in its own table:
+//   CREATE TABLE waitlist (
+//     waitlist_id INT AUTO_INCREMENT PRIMARY KEY,
+//     section_id INT NOT NULL,
+//     student_id VARCHAR(64) NOT NULL,
+//     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+//     UNIQUE KEY uq_waitlist (section_id, student_id)
+//   );
+// each section's queue is mirrored in memory (loaded on first use) so positions are answered without a query
+public class WaitlistDao {
+    // student IDs in queue order by section ID, shared by every WaitlistDao
+    private static final Map<Integer, List<String>> MIRROR = new ConcurrentHashMap<>();
+
+    private final DataSource ds;
+
+    public WaitlistDao(DataSource ds) {
+        this.ds = ds;
+    }
+
+    // puts a student at the end of a section's waitlist (or leaves them where they are)
+    // a student already registered in the section is refused; the check is part of the INSERT
+    // returns their position, starting at 1, or 0 if they were refused
+    public int join(String studentId, int sectionId) throws SQLException {
+        var sql = "INSERT IGNORE INTO waitlist (section_id, student_id) SELECT ?, ? FROM DUAL WHERE NOT EXISTS "
+            + "(SELECT 1 FROM enrollments WHERE student_id = ? AND section_id = ? AND status = 'registered')";
+        var registered = "SELECT 1 FROM enrollments WHERE student_id = ? AND section_id = ? AND status = 'registered'";
+
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, sectionId);
+            ps.setString(2, studentId);
+            ps.setString(3, studentId);
+            ps.setInt(4, sectionId);
+            if (ps.executeUpdate() == 0) {
+                // nothing inserted: either already waiting, or registered
+                try (var check = conn.prepareStatement(registered)) {
+                    check.setString(1, studentId);
+                    check.setInt(2, sectionId);
+                    try (var rs = check.executeQuery()) {
+                        if (rs.next()) return 0;
+                    }
+                }
+            }
+        }
+
+        List<String> queue = queue(sectionId);
+        synchronized (queue) {
+            if (!queue.contains(studentId)) queue.add(studentId);
+            return queue.indexOf(studentId) + 1;
+        }
+    }
+
+    // takes a student off a section's waitlist
+    public void leave(String studentId, int sectionId) throws SQLException {
+        var sql = "DELETE FROM waitlist WHERE section_id = ? AND student_id = ?";
+
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, sectionId);
+            ps.setString(2, studentId);
+            ps.executeUpdate();
+        }
+        removed(studentId, sectionId);
+    }
+
+    // position of a student on a section's waitlist, starting at 1, or 0 if they are not on it
+    public int position(String studentId, int sectionId) throws SQLException {
+        List<String> queue = queue(sectionId);
+        synchronized (queue) {
+            return queue.indexOf(studentId) + 1;
+        }
+    }
+
+    // updates the mirror after a student left the waitlist inside another transaction (registration or promotion)
+    void removed(String studentId, int sectionId) {
+        List<String> queue = MIRROR.get(sectionId);
+        if (queue == null) return;
+        synchronized (queue) {
+            queue.remove(studentId);
+        }
+    }
+
+    // this is a helper function that returns the mirrored queue of a section, loading it with one query the first time
+    private List<String> queue(int sectionId) throws SQLException {
+        List<String> queue = MIRROR.get(sectionId);
+        if (queue != null) return queue;
+
+        var sql = "SELECT student_id FROM waitlist WHERE section_id = ? ORDER BY waitlist_id";
+        var loaded = new ArrayList<String>();
+
+        try (var conn = ds.getConnection(); var ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, sectionId);
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) loaded.add(rs.getString("student_id"));
+            }
+        }
+        List<String> existing = MIRROR.putIfAbsent(sectionId, loaded);
+        return existing != null ? existing : loaded;
+    }
+}
@@ -0,0 +1,17 @@
+package edu.univ.erp.domain;
+
+public class SectionAvailability {
+    private final Section section;
+    private final int registered;
+    //constructor
+    public SectionAvailability(Section section, int registered) {
+        this.section = section;
+        this.registered = registered;
+    }
+    //getters
+    public Section getSection() { return section; }
+    public int getSectionId() { return section.getSectionId(); }
+    public int getCapacity() { return section.getCapacity(); }
+    public int getRegistered() { return registered; }
+    public int getSeatsLeft() { return Math.max(0, section.getCapacity() - registered); }
+}
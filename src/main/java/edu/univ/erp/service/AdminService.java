@@ -1,12 +1,17 @@
 package edu.univ.erp.service;
 
 import edu.univ.erp.access.AccessManager;
+import edu.univ.erp.auth.PasswordHasher;
 import edu.univ.erp.data.*;
 import edu.univ.erp.domain.*;
+import edu.univ.erp.util.WeekSlots;
 
 import javax.sql.DataSource;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class AdminService {
@@ -16,6 +21,7 @@ public class AdminService {
     private final InstructorDao instructorDao;
     private final CourseDao courseDao;
     private final SectionDao sectionDao;
+    private final EnrollmentDao enrollmentDao;
     private final MaintenanceService maintenanceService;
 
     //constructor
@@ -27,7 +33,8 @@ public class AdminService {
         this.instructorDao = new InstructorDao(erpDS);
         this.courseDao = new CourseDao(erpDS);
         this.sectionDao = new SectionDao(erpDS);
-        this.maintenanceService = new MaintenanceService(erpDS);
+        this.enrollmentDao = new EnrollmentDao(erpDS);
+        this.maintenanceService = new MaintenanceService();
 
     }
 
@@ -63,7 +70,11 @@ public class AdminService {
         //generate user_id (UUID)
         String userId = UUID.randomUUID().toString();
         //add to auth_db
-        authDao.addUser(fullName,username,password,role,userId);
+        try {
+            authDao.addUser(fullName,username,password,role,userId);
+        } catch (PasswordHasher.BusyException e) {
+            throw new ServiceException(e.getMessage(), e);
+        }
 
         //insert into erp_db
         switch (role) {
@@ -107,7 +118,25 @@ public class AdminService {
         if (capacity <= 0)
             throw new ServiceException("Capacity must be positive.");
 
-        sectionDao.insertSection(courseId, instructorId, dayTime, room, capacity, semester, year);
+        //the room must not be booked by another section at an overlapping time, checked and written as one step
+        bookRoom(semester, year, room, dayTime, 0,
+            () -> sectionDao.insertSection(courseId, instructorId, dayTime, room, capacity, semester, year));
+    }
+
+    //rooms with nothing booked at the given day/time in a term
+    public List<String> getFreeRooms(String semester, int year, String dayTime) throws SQLException, ServiceException {
+        access.requireAdminAccess();
+        if (semester == null || semester.isBlank()) throw new ServiceException("Semester is required.");
+        if (year <= 0) throw new ServiceException("Year is required.");
+        if (dayTime == null || dayTime.isBlank()) throw new ServiceException("Day Time is required.");
+        if (WeekSlots.parse(dayTime).isEmpty()) throw new ServiceException("Day Time could not be read: " + dayTime);
+        return RoomOccupancyIndex.get().freeRooms(semester, year, dayTime);
+    }
+
+    //room double booking check against the room occupancy index, the write only runs if the room is free
+    private void bookRoom(String semester, int year, String room, String dayTime, int sectionId, RoomOccupancyIndex.Booking write) throws SQLException, ServiceException {
+        Integer other = RoomOccupancyIndex.get().bookIfFree(semester, year, room, dayTime, sectionId, write);
+        if (other != null) throw new ServiceException("Room " + room + " is already booked at that time by section " + other + ".");
     }
 
     //update course
@@ -139,7 +168,9 @@ public class AdminService {
         if (capacity <= 0)
             throw new ServiceException("Capacity must be positive.");
 
-        sectionDao.updateSection(sectionID, courseId, instructorId, dayTime, room, capacity, semester, year);
+        //the room must not be booked by another section at an overlapping time, checked and written as one step
+        bookRoom(semester, year, room, dayTime, sectionID,
+            () -> sectionDao.updateSection(sectionID, courseId, instructorId, dayTime, room, capacity, semester, year));
     }
 
     //delete section
@@ -167,6 +198,83 @@ public class AdminService {
         sectionDao.updateInstructor(sectionId, instructorId);
     }
 
+    //registration rush mode toggle
+    //rush mode keeps free seats in this app instance's memory, so it is meant for a single instance taking
+    //registrations; other instances keep reserving in the database and their seats win when the queue is written
+    public void setRushMode(boolean on) throws SQLException, ServiceException {
+        access.requireAdminAccess();
+        try {
+            if (on) RegistrationRush.get().start();
+            else RegistrationRush.get().end();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Interrupted while ending rush mode.", e);
+        }
+    }
+
+    //rush mode counters: admitted, rejected, queued, written, and the enrollments that failed to write
+    public RushStats getRushStats() throws ServiceException {
+        access.requireAdminAccess();
+        RegistrationRush rush = RegistrationRush.get();
+        return new RushStats(rush.isActive(), rush.getAdmitted(), rush.getRejected(), rush.getQueueDepth(),
+            rush.getWritten(), rush.getFailedWrites(), rush.getRecentFailures());
+    }
+
+    //timetable clashes of one term: students registered in overlapping sections and instructors teaching them
+    //sections and registrations are read with two queries and every pair is checked in memory with week bitsets
+    public List<Clash> getClashReport(String semester, int year) throws SQLException, ServiceException {
+        access.requireAdminAccess();
+        if (semester == null || semester.isBlank()) throw new ServiceException("Semester is required.");
+        if (year <= 0) throw new ServiceException("Year is required.");
+
+        List<Section> sections = sectionDao.getSectionsForTerm(semester, year);
+        Map<String, List<Integer>> registered = enrollmentDao.getRegisteredSectionsForTerm(semester, year);
+
+        Map<Integer, WeekSlots> slots = new HashMap<>();
+        Map<String, List<Integer>> taught = new HashMap<>();
+        for (Section s : sections) {
+            slots.put(s.getSectionId(), WeekSlots.forSection(s.getSectionId(), s.getDayTime()));
+            if (s.getInstructor() != null) {
+                taught.computeIfAbsent(s.getInstructor().getUserId(), k -> new ArrayList<>()).add(s.getSectionId());
+            }
+        }
+
+        List<Clash> report = new ArrayList<>();
+        for (var e : registered.entrySet()) addClashes(report, "student", e.getKey(), e.getValue(), slots);
+        for (var e : taught.entrySet()) addClashes(report, "instructor", e.getKey(), e.getValue(), slots);
+        return report;
+    }
+
+    //helper: adds every overlapping pair among one person's sections
+    private void addClashes(List<Clash> report, String kind, String userId, List<Integer> sectionIds, Map<Integer, WeekSlots> slots) {
+        for (int i = 0; i < sectionIds.size(); i++) {
+            WeekSlots a = slots.get(sectionIds.get(i));
+            if (a == null || a.isEmpty()) continue;
+            for (int j = i + 1; j < sectionIds.size(); j++) {
+                WeekSlots b = slots.get(sectionIds.get(j));
+                if (b != null && a.intersects(b)) report.add(new Clash(kind, userId, sectionIds.get(i), sectionIds.get(j)));
+            }
+        }
+    }
+
+    //password hashing pool metrics
+    public HashStats getHashStats() throws ServiceException {
+        access.requireAdminAccess();
+        PasswordHasher h = PasswordHasher.get();
+        return new HashStats(h.getThreads(), h.getActive(), h.getQueueDepth(), h.getCompleted(), h.getRejected(),
+            h.getAverageQueueMillis(), h.getMaxQueueMillis(), h.getAverageHashMillis());
+    }
+
+    //hit/miss counters of the in-memory caches and the last_login write-behind
+    public CacheStats getCacheStats() throws ServiceException {
+        access.requireAdminAccess();
+        CourseCatalogCache catalog = CourseCatalogCache.get();
+        SeatAvailabilityCache seats = SeatAvailabilityCache.get();
+        LastLoginWriter lastLogins = LastLoginWriter.get();
+        return new CacheStats(catalog.getHits(), catalog.getMisses(), seats.getHits(), seats.getLoads(),
+            lastLogins.getRecorded(), lastLogins.getWritten(), lastLogins.getPending());
+    }
+
     //maintenance mode toggle
     public void setMaintenance(boolean on) throws SQLException, ServiceException {
 
@@ -178,4 +286,115 @@ public class AdminService {
             maintenanceService.turnOff();
         }
     }
+
+    //rush mode metrics for the admin dashboard
+    public static class RushStats {
+        private final boolean active;
+        private final long admitted;
+        private final long rejected;
+        private final int queueDepth;
+        private final long written;
+        private final long failedWrites;
+        private final List<String> recentFailures;
+
+        public RushStats(boolean active, long admitted, long rejected, int queueDepth, long written, long failedWrites, List<String> recentFailures) {
+            this.active = active;
+            this.admitted = admitted;
+            this.rejected = rejected;
+            this.queueDepth = queueDepth;
+            this.written = written;
+            this.failedWrites = failedWrites;
+            this.recentFailures = recentFailures;
+        }
+
+        public boolean isActive() { return active; }
+        public long getAdmitted() { return admitted; }
+        public long getRejected() { return rejected; }
+        public int getQueueDepth() { return queueDepth; }
+        public long getWritten() { return written; }
+        public long getFailedWrites() { return failedWrites; }
+        //"studentId in section N: reason" for the latest registrations that were taken back, newest first
+        public List<String> getRecentFailures() { return recentFailures; }
+    }
+
+    //one timetable clash: a student or instructor with two overlapping sections
+    public static class Clash {
+        private final String kind;
+        private final String userId;
+        private final int sectionA;
+        private final int sectionB;
+
+        public Clash(String kind, String userId, int sectionA, int sectionB) {
+            this.kind = kind;
+            this.userId = userId;
+            this.sectionA = sectionA;
+            this.sectionB = sectionB;
+        }
+
+        public String getKind() { return kind; }
+        public String getUserId() { return userId; }
+        public int getSectionA() { return sectionA; }
+        public int getSectionB() { return sectionB; }
+    }
+
+    //password hashing pool metrics for the admin dashboard
+    public static class HashStats {
+        private final int threads;
+        private final int active;
+        private final int queueDepth;
+        private final long completed;
+        private final long rejected;
+        private final double avgQueueMillis;
+        private final double maxQueueMillis;
+        private final double avgHashMillis;
+
+        public HashStats(int threads, int active, int queueDepth, long completed, long rejected, double avgQueueMillis, double maxQueueMillis, double avgHashMillis) {
+            this.threads = threads;
+            this.active = active;
+            this.queueDepth = queueDepth;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.avgQueueMillis = avgQueueMillis;
+            this.maxQueueMillis = maxQueueMillis;
+            this.avgHashMillis = avgHashMillis;
+        }
+
+        public int getThreads() { return threads; }
+        public int getActive() { return active; }
+        public int getQueueDepth() { return queueDepth; }
+        public long getCompleted() { return completed; }
+        public long getRejected() { return rejected; }
+        public double getAvgQueueMillis() { return avgQueueMillis; }
+        public double getMaxQueueMillis() { return maxQueueMillis; }
+        public double getAvgHashMillis() { return avgHashMillis; }
+    }
+
+    //cache metrics for the admin dashboard
+    public static class CacheStats {
+        private final long catalogHits;
+        private final long catalogMisses;
+        private final long availabilityHits;
+        private final long availabilityLoads;
+        private final long lastLoginsRecorded;
+        private final long lastLoginsWritten;
+        private final int lastLoginsPending;
+
+        public CacheStats(long catalogHits, long catalogMisses, long availabilityHits, long availabilityLoads, long lastLoginsRecorded, long lastLoginsWritten, int lastLoginsPending) {
+            this.catalogHits = catalogHits;
+            this.catalogMisses = catalogMisses;
+            this.availabilityHits = availabilityHits;
+            this.availabilityLoads = availabilityLoads;
+            this.lastLoginsRecorded = lastLoginsRecorded;
+            this.lastLoginsWritten = lastLoginsWritten;
+            this.lastLoginsPending = lastLoginsPending;
+        }
+
+        public long getCatalogHits() { return catalogHits; }
+        public long getCatalogMisses() { return catalogMisses; }
+        public long getAvailabilityHits() { return availabilityHits; }
+        public long getAvailabilityLoads() { return availabilityLoads; }
+        public long getLastLoginsRecorded() { return lastLoginsRecorded; }
+        public long getLastLoginsWritten() { return lastLoginsWritten; }
+        public int getLastLoginsPending() { return lastLoginsPending; }
+    }
 }
\ No newline at end of file
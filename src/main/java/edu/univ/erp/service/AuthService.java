@@ -1,11 +1,16 @@
 package edu.univ.erp.service;
 
 import edu.univ.erp.access.CurrentSession;
+import edu.univ.erp.access.Session;
+import edu.univ.erp.access.SessionRegistry;
+import edu.univ.erp.auth.HashingPolicy;
+import edu.univ.erp.auth.LoginThrottle;
+import edu.univ.erp.auth.PasswordHasher;
 import edu.univ.erp.data.AuthDao;
-import edu.univ.erp.data.MaintenanceDao;
+import edu.univ.erp.data.LastLoginWriter;
 import edu.univ.erp.domain.User;
-import edu.univ.erp.util.DataSourceProvider;
-import org.mindrot.jbcrypt.BCrypt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.sql.SQLException;
@@ -15,63 +20,95 @@ import java.time.temporal.ChronoUnit;
 import java.util.Optional;
 
 public class AuthService {
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
+
     private final AuthDao authDao;
-    private final MaintenanceDao maintenanceDao;
-    private final int MAX_ATTEMPTS = 5; //upto 5 password attempts
-    private final int LOCK_MINUTES = 5; //lock for 5 minutes
+    private final MaintenanceService maintenanceService;
+    private final LastLoginWriter lastLogins;
+    private final PasswordHasher hasher;
+    private final LoginThrottle throttle;
+    private final SessionRegistry sessions;
 
     //constructor
     public AuthService(DataSource authDS) {
         this.authDao = new AuthDao(authDS);
-        this.maintenanceDao = new MaintenanceDao(DataSourceProvider.getERPDataSource());
+        this.maintenanceService = new MaintenanceService();
+        this.lastLogins = LastLoginWriter.get();
+        this.hasher = PasswordHasher.get();
+        this.throttle = LoginThrottle.get();
+        this.sessions = SessionRegistry.get();
     }
 
     //login service
+    //a successful login costs one SELECT and at most one UPDATE: an expired lock is not unlocked and read again,
+    //it is treated as unlocked here and cleared by the same UPDATE that records the login
+    //failed attempts are counted in memory by LoginThrottle, only the start of a lockout is written
+    //the session is attached to the calling thread, which is how the desktop app (all on the Swing event thread) uses it
     public User login(String username, String password) throws ServiceException, SQLException {
+        Session session = startSession(username, password);
+        CurrentSession.attach(session.getToken());
+        return session.getUser();
+    }
+
+    //authenticates and opens a session without binding it, for front ends serving many users
+    //each of their requests then runs inside CurrentSession.bind(token)
+    public Session startSession(String username, String password) throws ServiceException, SQLException {
+        //a username in a running lockout is refused before the database or bcrypt are touched
+        long throttledUntil = throttle.lockedUntil(username);
+        if (throttledUntil > 0) {
+            long minutesLeft = ChronoUnit.MINUTES.between(Instant.now(), Instant.ofEpochMilli(throttledUntil));
+            throw new ServiceException("Account locked. Try again in " + minutesLeft + " minutes.");
+        }
+
         Optional<User> maybe = authDao.findByUsername(username);
         //optional to handle null objects
 
-        if (maybe.isEmpty()) throw new ServiceException("Incorrect username or password.");
+        if (maybe.isEmpty()) {
+            //unknown usernames are counted too, so guessing them is throttled the same way
+            throttle.recordFailure(username);
+            throw new ServiceException("Incorrect username or password.");
+        }
 
         User user = maybe.get();
+        boolean locked = "locked".equalsIgnoreCase(user.getStatus());
 
-        //if account is locked right now
-        if ("locked".equalsIgnoreCase(user.getStatus())) {
+        //if account is locked right now (e.g. by another app instance)
+        if (locked) {
 
             //if current time is not after locked until time, throw error
             if (user.getLockedUntil() != null && user.getLockedUntil().after(Timestamp.from(Instant.now()))) {
                 long minutesLeft = ChronoUnit.MINUTES.between(Instant.now(), user.getLockedUntil().toInstant());
                 throw new ServiceException("Account locked. Try again in " + minutesLeft + " minutes.");
             }
-
-            //otherwise reset the lock
-            authDao.unlockUser(user.getUserId());
-            user = authDao.findByUsername(username).get();
         }
 
         //check password correctness
-        if (!BCrypt.checkpw(password, user.getPasswordHash())) {
-
-            authDao.incrementFailedAttempts(user.getUserId());
+        if (!verify(password, user.getPasswordHash())) {
 
-            //if too many failed attempts, lock the account for some time
-            if (user.getFailedAttempts() + 1 >= MAX_ATTEMPTS) {
-                Timestamp until = Timestamp.from(Instant.now().plus(LOCK_MINUTES, ChronoUnit.MINUTES));
-                authDao.lockUser(user.getUserId(), until);
-                throw new ServiceException("Too many failed attempts. Account locked for " + LOCK_MINUTES + " minutes.");
+            //if too many recent failed attempts, lock the account for some time, this is the only write
+            long lockUntil = throttle.recordFailure(username);
+            if (lockUntil > 0) {
+                authDao.lockUser(user.getUserId(), new Timestamp(lockUntil));
+                throw new ServiceException("Too many failed attempts. Account locked for " + throttle.getLockMinutes() + " minutes.");
             }
 
             throw new ServiceException("Incorrect username or password.");
         }
+        throttle.recordSuccess(username);
+
+        //login finally, with one UPDATE for the counter, the lock and last_login
+        //when last_login is written behind and there is nothing to reset, no UPDATE is needed at all
+        if (lastLogins.isEnabled() && !locked && user.getFailedAttempts() == 0) {
+            lastLogins.record(user.getUserId());
+        } else {
+            authDao.recordLogin(user.getUserId());
+        }
 
-        //login finally
-        authDao.resetFailedAttempts(user.getUserId());
-        authDao.updateLastLogin(user.getUserId());
-
-        //set current session for user
-        CurrentSession.set(user);
+        //a hash made with a lower cost than the current policy is replaced now that the plain password is known
+        rehashIfNeeded(user, password);
 
-        return user;
+        //open a session for the user
+        return sessions.open(user);
     }
 
     //logout
@@ -95,17 +132,48 @@ public class AuthService {
         if (oldPass.equals(newPass)) {
             throw new ServiceException("Old And New Password Cannot Be Same.");
         }
-        if (CurrentSession.get() == null) {
+        User current = CurrentSession.get();
+        if (current == null) {
             throw new ServiceException("Current Session is null.");
         }
-        if (!BCrypt.checkpw(oldPass, CurrentSession.get().getPasswordHash())) {
+        if (!current.getUsername().equalsIgnoreCase(username)) {
+            throw new ServiceException("Access Denied.");
+        }
+        if (!verify(oldPass, current.getPasswordHash())) {
             throw new ServiceException("Incorrect Old Password.");
         }
-        if (maintenanceDao.isMaintenanceOn()){
+        if (maintenanceService.isMaintenanceOn()){
             throw new ServiceException("Maintenance Mode On. View Only.");
         }
 
         //change password hash to new passowrd hash
-        authDao.changePassword(username, BCrypt.hashpw(newPass, BCrypt.gensalt(12)));
+        try {
+            //the stored spelling of the username, the one typed may differ in case
+            authDao.changePassword(current.getUsername(), hasher.hash(newPass));
+        } catch (PasswordHasher.BusyException e) {
+            throw new ServiceException(e.getMessage(), e);
+        }
+    }
+
+    //helper: upgrades a stored hash below the policy cost, best effort
+    //the login has already succeeded, so a busy pool or a failed write is only logged and the next login tries again
+    private void rehashIfNeeded(User user, String password) {
+        if (!HashingPolicy.get().needsRehash(user.getPasswordHash())) return;
+        try {
+            authDao.changePassword(user.getUsername(), hasher.hash(password));
+        } catch (PasswordHasher.BusyException e) {
+            log.debug("Skipped rehashing the password of {}: hashing pool busy", user.getUsername());
+        } catch (SQLException e) {
+            log.warn("Could not store the rehashed password of {}", user.getUsername(), e);
+        }
+    }
+
+    //password check on the shared hashing pool, a full pool is reported as a service error
+    private boolean verify(String plain, String hash) throws ServiceException {
+        try {
+            return hasher.verify(plain, hash);
+        } catch (PasswordHasher.BusyException e) {
+            throw new ServiceException(e.getMessage(), e);
+        }
     }
 }
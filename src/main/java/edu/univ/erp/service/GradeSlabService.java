@@ -1,5 +1,6 @@
 package edu.univ.erp.service;
 
+import edu.univ.erp.data.CompiledSlabs;
 import edu.univ.erp.data.GradeSlabDao;
 import edu.univ.erp.domain.GradeSlab;
 import edu.univ.erp.ui.UiContext;
@@ -13,25 +14,24 @@ public class GradeSlabService {
 
     public GradeSlabService(DataSource ds) {
         this.dao = new GradeSlabDao(ds);
-        this.maintenanceService = new MaintenanceService(ds);
+        this.maintenanceService = new MaintenanceService();
     }
 
     public List<GradeSlab> getSlabs(int sectionId, String instructorId) throws Exception {
         UiContext.get().access().requireInstructorForSectionAccess(instructorId,sectionId);
-        return dao.getSlabs(sectionId);
+        return dao.getCompiled(sectionId).getSlabs();
     }
 
     public void addSlab(int sectionId, String letter, double min, double max, String instructorId) throws Exception {
         maintenanceService.requireWriteAllowed();
         UiContext.get().access().requireInstructorForSectionAccess(instructorId, sectionId);
-        List<GradeSlab> slabs = getSlabs(sectionId, instructorId);
-        for (GradeSlab slab : slabs) {
-            if (slab.getLetter().equals(letter)) {
-                throw new ServiceException("Letter Grade already exists");
-            }
-            if (!((slab.getMin() >= max && slab.getMax() >= max) || (slab.getMin() <= min && slab.getMax() <= min))) {
-                throw new ServiceException("Overlapping Slabs");
-            }
+        //validate against the same compiled slabs used for grading
+        CompiledSlabs slabs = dao.getCompiled(sectionId);
+        if (slabs.hasLetter(letter, -1)) {
+            throw new ServiceException("Letter Grade already exists");
+        }
+        if (slabs.overlaps(min, max, -1)) {
+            throw new ServiceException("Overlapping Slabs");
         }
         dao.insertSlab(sectionId, letter, min, max);
     }
@@ -39,18 +39,16 @@ public class GradeSlabService {
     public void deleteSlab(int slabId, int sectionId, String instructorId) throws Exception {
         maintenanceService.requireWriteAllowed();
         UiContext.get().access().requireInstructorForSectionAccess(instructorId,sectionId);
-        dao.deleteSlab(slabId);
+        dao.deleteSlab(slabId, sectionId);
     }
 
     public void updateSlab(GradeSlab slab, int sectionId, String instructorId) throws Exception {
         maintenanceService.requireWriteAllowed();
         UiContext.get().access().requireInstructorForSectionAccess(instructorId,sectionId);
-        List<GradeSlab> slabs = getSlabs(sectionId, instructorId);
-        for (GradeSlab s : slabs) {
-            if (!((s.getMin() >= slab.getMax() && s.getMax() >= slab.getMax()) || (s.getMin() <= slab.getMin() && s.getMax() <= slab.getMin()))) {
-                throw new ServiceException("Overlapping Slabs");
-            }
+        //the slab being edited doesn't count as an overlap with itself
+        if (dao.getCompiled(sectionId).overlaps(slab.getMin(), slab.getMax(), slab.getId())) {
+            throw new ServiceException("Overlapping Slabs");
         }
-        dao.updateSlab(slab);
+        dao.updateSlab(slab, sectionId);
     }
 }
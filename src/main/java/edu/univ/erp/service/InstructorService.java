@@ -6,7 +6,9 @@ import edu.univ.erp.domain.*;
 
 import javax.sql.DataSource;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class InstructorService {
     private final SectionDao sectionDao;
@@ -14,6 +16,7 @@ public class InstructorService {
     private final AssessmentDao assessmentDao;
     private final ScoreDao scoreDao;
     private final FinalGradeDao finalGradeDao;
+    private final GradeSlabDao slabDao;
     private final AccessManager accessManager;
     private final MaintenanceService maintenanceService;
 
@@ -23,8 +26,9 @@ public class InstructorService {
         this.assessmentDao = new AssessmentDao(ds);
         this.scoreDao = new ScoreDao(ds);
         this.finalGradeDao = new FinalGradeDao(ds, assessmentDao, scoreDao, enrollmentDao);
+        this.slabDao = new GradeSlabDao(ds);
         this.accessManager = a;
-        this.maintenanceService = new MaintenanceService(ds);
+        this.maintenanceService = new MaintenanceService();
     }
 
     //get instructor sections
@@ -82,27 +86,22 @@ public class InstructorService {
     }
 
     //final grades for a section
+    //gradebook pivot: roster, assessments, all section scores and slabs are loaded once,
+    //then every row and final grade is built from the score matrix in memory
     public SectionGradeSummary getSectionGradeSummary(int sectionId, String instructorId) throws Exception {
         accessManager.requireInstructorForSectionAccess(instructorId,sectionId);
-        System.out.println("HERE");
         List<Student> students = enrollmentDao.getEnrolledStudents(sectionId);
-        System.out.println("HERE");
         List<Assessment> assessments = assessmentDao.getBySection(sectionId);
 
-        List<StudentGradeRow> gradeRows = new ArrayList<>();
-
-        // Compute for each student
-        for (Student stu : students) {
+        Map<String, Student> byId = new LinkedHashMap<>();
+        for (Student stu : students) byId.put(stu.getUserId(), stu);
 
-            List<Score> scores = new ArrayList<>();
-            for (Assessment a : assessments) {
-                Score sc = scoreDao.getScore(a.getId(), stu.getUserId());
-                if (sc != null) scores.add(sc);
-            }
+        GradeMatrix matrix = scoreDao.loadMatrix(sectionId, byId.keySet(), assessments);
+        List<FinalGrade> finals = finalGradeDao.toFinalGrades(sectionDao.getSection(sectionId), byId, matrix, slabDao.getCompiled(sectionId));
 
-            FinalGrade finalGrade = finalGradeDao.computeForStudent(sectionId, stu.getUserId());
-
-            gradeRows.add(new StudentGradeRow(stu, scores, finalGrade));
+        List<StudentGradeRow> gradeRows = new ArrayList<>();
+        for (int r = 0; r < finals.size(); r++) {
+            gradeRows.add(new StudentGradeRow(finals.get(r).getStudent(), matrix.scoresFor(r), finals.get(r)));
         }
 
         return new SectionGradeSummary(assessments, gradeRows);
@@ -1,42 +1,45 @@
 package edu.univ.erp.service;
 
-import edu.univ.erp.data.MaintenanceDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import javax.sql.DataSource;
 import java.sql.SQLException;
 
 public class MaintenanceService {
-    private final MaintenanceDao dao;
+    private static final Logger log = LoggerFactory.getLogger(MaintenanceService.class);
+
+    private final MaintenanceState state;
 
     //constructor
-    public MaintenanceService(DataSource erpDS) {
-        this.dao = new MaintenanceDao(erpDS);
+    public MaintenanceService() {
+        this.state = MaintenanceState.get();
     }
 
     //turn off maintenance
     public void turnOff() throws SQLException {
-        dao.setMaintenance(false);
+        state.set(false);
     }
 
     //check if maintenance is on
     public boolean isMaintenanceOn() throws SQLException {
-        return dao.isMaintenanceOn();
+        return state.isOn();
     }
 
     //turn on maintenance
     public void turnOn() throws SQLException {
-        dao.setMaintenance(true);
+        state.set(true);
     }
 
     //if a function writes to data, check if maintenance is off, else throw error
+    //the flag comes from memory, so writes don't pay an extra query each
     public void requireWriteAllowed() throws ServiceException {
         try {
-            if (dao.isMaintenanceOn()) {
+            if (state.isOn()) {
                 throw new ServiceException("Maintenance mode is ON. Changes are temporarily disabled.");
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.warn("Could not read the maintenance flag", e);
             throw new ServiceException("Error checking maintenance mode.", e);
         }
     }
@@ -0,0 +1,60 @@
+package edu.univ.erp.service;
+
+import edu.univ.erp.data.MaintenanceDao;
+import edu.univ.erp.util.DataSourceProvider;
+
+import java.sql.SQLException;
+
+public class MaintenanceState {
+    //how long a read flag is trusted before it is read again, can be changed with -Derp.maintenance.refreshMillis
+    private static final long REFRESH_MILLIS = Long.getLong("erp.maintenance.refreshMillis", 5000);
+
+    private static MaintenanceState instance;
+
+    private final MaintenanceDao dao;
+    private final long refreshNanos;
+    private volatile boolean on;
+    private volatile long loadedAt;
+    private volatile boolean loaded;
+
+    //constructor
+    MaintenanceState(MaintenanceDao dao, long refreshMillis) {
+        this.dao = dao;
+        this.refreshNanos = refreshMillis * 1_000_000L;
+    }
+
+    //only one maintenance state exists, shared by every service
+    public static synchronized MaintenanceState get() {
+        if (instance == null) {
+            instance = new MaintenanceState(new MaintenanceDao(DataSourceProvider.getERPDataSource()), REFRESH_MILLIS);
+        }
+        return instance;
+    }
+
+    //check if maintenance is on, the settings table is only read when the cached flag is too old
+    public boolean isOn() throws SQLException {
+        if (!loaded || System.nanoTime() - loadedAt > refreshNanos) {
+            refresh();
+        }
+        return on;
+    }
+
+    //read the flag again, only one caller does the read when many find it stale at once
+    public synchronized void refresh() throws SQLException {
+        if (loaded && System.nanoTime() - loadedAt <= refreshNanos) return;
+        update(dao.isMaintenanceOn());
+    }
+
+    //save the flag and use it right away
+    public synchronized void set(boolean value) throws SQLException {
+        dao.setMaintenance(value);
+        update(value);
+    }
+
+    //helper to store a fresh value
+    private void update(boolean value) {
+        on = value;
+        loadedAt = System.nanoTime();
+        loaded = true;
+    }
+}
@@ -0,0 +1,166 @@
+package edu.univ.erp.service;
+
+import edu.univ.erp.data.SectionDao;
+import edu.univ.erp.util.WeekSlots;
+
+import java.sql.SQLException;
+import java.util.*;
+
+//builds conflict free timetables for a list of courses
+//every candidate section and its free seats come from one query, then a backtracking search picks one section
+//per course over week bitsets: full sections and sections clashing with the student's timetable are dropped
+//up front, courses with the fewest choices are placed first, and a branch stops as soon as it clashes or
+//can no longer beat the worst of the k timetables kept so far
+public class ScheduleSolver {
+    //how long one search may run, can be changed with -Derp.solver.budgetMillis
+    private static final long BUDGET_MILLIS = Long.getLong("erp.solver.budgetMillis", 250);
+
+    private final SeatSource seats;
+
+    //constructor
+    public ScheduleSolver(SectionDao sectionDao) {
+        this(new SeatSource() {
+            public List<SectionDao.SeatRow> forStudent(String studentId, String semester, int year) throws SQLException {
+                return sectionDao.getSeatRowsForStudent(studentId, semester, year);
+            }
+
+            public List<SectionDao.SeatRow> forCourses(Collection<Integer> courseIds, String semester, int year) throws SQLException {
+                return sectionDao.getSeatRowsForCourses(courseIds, semester, year);
+            }
+        });
+    }
+
+    //constructor with its own seat rows, for tests
+    ScheduleSolver(SeatSource seats) {
+        this.seats = seats;
+    }
+
+    //up to k timetables for one term, best first: fewest days on campus, then the most free seats in the fullest section
+    //courses the student is already registered in that term are left out
+    //returns an empty list if nothing is left to place or some course has no open section that fits
+    public List<Timetable> solve(String studentId, Collection<Integer> courseIds, String semester, int year, int k) throws SQLException {
+        List<Integer> courses = new ArrayList<>(new LinkedHashSet<>(courseIds));
+        if (courses.isEmpty() || k <= 0) return List.of();
+
+        //the student's current timetable in that term is busy time, and its courses are already taken
+        WeekSlots busy = WeekSlots.EMPTY;
+        for (SectionDao.SeatRow row : seats.forStudent(studentId, semester, year)) {
+            busy = busy.union(WeekSlots.forSection(row.sectionId(), row.dayTime()));
+            courses.remove(Integer.valueOf(row.courseId()));
+        }
+        if (courses.isEmpty()) return List.of();
+
+        //open sections of that term that fit around it, by course
+        Map<Integer, List<Candidate>> byCourse = new HashMap<>();
+        for (Integer c : courses) byCourse.put(c, new ArrayList<>());
+        for (SectionDao.SeatRow row : seats.forCourses(courses, semester, year)) {
+            if (row.free() <= 0) continue;
+            WeekSlots slots = WeekSlots.forSection(row.sectionId(), row.dayTime());
+            if (slots.intersects(busy)) continue;
+            byCourse.get(row.courseId()).add(new Candidate(row.sectionId(), row.free(), slots));
+        }
+
+        //fewest choices first, and within a course the emptiest section first
+        List<List<Candidate>> levels = new ArrayList<>();
+        for (Integer c : courses) {
+            List<Candidate> list = byCourse.get(c);
+            if (list.isEmpty()) return List.of();
+            list.sort((a, b) -> Integer.compare(b.free(), a.free()));
+            levels.add(list);
+        }
+        levels.sort(Comparator.comparingInt(List::size));
+
+        Search search = new Search(levels, k, System.nanoTime() + BUDGET_MILLIS * 1_000_000L);
+        search.run(0, WeekSlots.EMPTY, Integer.MAX_VALUE);
+
+        List<Timetable> result = new ArrayList<>(search.best);
+        result.sort(BEST_FIRST);
+        return result;
+    }
+
+    private static final Comparator<Timetable> BEST_FIRST =
+        Comparator.comparingInt(Timetable::getDaysOnCampus).thenComparing(Comparator.comparingInt(Timetable::getMinFreeSeats).reversed());
+
+    //the backtracking search over one set of candidates
+    private static class Search {
+        private final List<List<Candidate>> levels;
+        private final int k;
+        private final long deadline;
+        private final int[] chosen;
+        private final PriorityQueue<Timetable> best; //worst of the kept timetables on top
+        private long nodes;
+        private boolean outOfTime;
+
+        Search(List<List<Candidate>> levels, int k, long deadline) {
+            this.levels = levels;
+            this.k = k;
+            this.deadline = deadline;
+            this.chosen = new int[levels.size()];
+            this.best = new PriorityQueue<>(BEST_FIRST.reversed());
+        }
+
+        void run(int level, WeekSlots used, int minFree) {
+            //the clock is read every 256 nodes, not on every step
+            if ((++nodes & 255) == 0 && System.nanoTime() > deadline) outOfTime = true;
+            if (outOfTime) return;
+
+            //days on campus only grow deeper down, so a branch already worse than the kept ones can stop
+            int days = used.daysUsed();
+            if (best.size() == k && days > best.peek().getDaysOnCampus()) return;
+
+            if (level == levels.size()) {
+                keep(new Timetable(sectionIds(), days, minFree));
+                return;
+            }
+
+            for (Candidate c : levels.get(level)) {
+                if (used.intersects(c.slots())) continue;
+                chosen[level] = c.sectionId();
+                run(level + 1, used.union(c.slots()), Math.min(minFree, c.free()));
+                if (outOfTime) return;
+            }
+        }
+
+        private void keep(Timetable t) {
+            if (best.size() < k) {
+                best.add(t);
+            } else if (BEST_FIRST.compare(t, best.peek()) < 0) {
+                best.poll();
+                best.add(t);
+            }
+        }
+
+        private List<Integer> sectionIds() {
+            List<Integer> ids = new ArrayList<>(chosen.length);
+            for (int id : chosen) ids.add(id);
+            Collections.sort(ids);
+            return ids;
+        }
+    }
+
+    //where the solver reads sections and seats from, SectionDao outside of tests
+    interface SeatSource {
+        List<SectionDao.SeatRow> forStudent(String studentId, String semester, int year) throws SQLException;
+        List<SectionDao.SeatRow> forCourses(Collection<Integer> courseIds, String semester, int year) throws SQLException;
+    }
+
+    //one open section that fits the student's timetable
+    private record Candidate(int sectionId, int free, WeekSlots slots) {}
+
+    //one conflict free set of sections, one per course, ready to pass to StudentService.registerCart
+    public static class Timetable {
+        private final List<Integer> sectionIds;
+        private final int daysOnCampus;
+        private final int minFreeSeats;
+
+        public Timetable(List<Integer> sectionIds, int daysOnCampus, int minFreeSeats) {
+            this.sectionIds = List.copyOf(sectionIds);
+            this.daysOnCampus = daysOnCampus;
+            this.minFreeSeats = minFreeSeats;
+        }
+
+        public List<Integer> getSectionIds() { return sectionIds; }
+        public int getDaysOnCampus() { return daysOnCampus; }
+        public int getMinFreeSeats() { return minFreeSeats; }
+    }
+}
@@ -0,0 +1,47 @@
+package edu.univ.erp.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+//an immutable copy of the global settings, replaced as a whole when something changes
+//maintenance_mode is not part of it, MaintenanceState owns that flag and sees changes right away
+public class SettingsSnapshot {
+    private final Map<String, String> values;
+    private final LocalDate addDropDeadline;
+
+    //constructor
+    public SettingsSnapshot(Map<String, String> values, LocalDate addDropDeadline) {
+        this.values = Map.copyOf(values);
+        this.addDropDeadline = addDropDeadline;
+    }
+
+    //add/drop deadline, null if none was set
+    public LocalDate getAddDropDeadline() { return addDropDeadline; }
+
+    //raw value of a setting, or the default if it is missing
+    public String getString(String key, String def) {
+        return values.getOrDefault(key, def);
+    }
+
+    //"on"/"true" are true, anything else is false
+    public boolean getBoolean(String key, boolean def) {
+        String v = values.get(key);
+        if (v == null) return def;
+        return "on".equalsIgnoreCase(v) || "true".equalsIgnoreCase(v);
+    }
+
+    //integer setting, or the default if it is missing or not a number
+    public int getInt(String key, int def) {
+        try {
+            String v = values.get(key);
+            return v == null ? def : Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    //copy with a new deadline
+    SettingsSnapshot withDeadline(LocalDate deadline) {
+        return new SettingsSnapshot(values, deadline);
+    }
+}
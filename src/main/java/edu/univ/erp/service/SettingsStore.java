@@ -0,0 +1,72 @@
+package edu.univ.erp.service;
+
+import edu.univ.erp.data.AddDropDao;
+import edu.univ.erp.data.SettingsDao;
+import edu.univ.erp.util.DataSourceProvider;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SettingsStore {
+    //how long a snapshot is trusted before it is loaded again, can be changed with -Derp.settings.refreshMillis
+    private static final long REFRESH_MILLIS = Long.getLong("erp.settings.refreshMillis", 30000);
+
+    private static SettingsStore instance;
+
+    private final SettingsDao settingsDao;
+    private final AddDropDao addDropDao;
+    private final long refreshNanos;
+    private final AtomicReference<SettingsSnapshot> current = new AtomicReference<>();
+    private volatile long loadedAt;
+
+    //constructor
+    SettingsStore(SettingsDao settingsDao, AddDropDao addDropDao, long refreshMillis) {
+        this.settingsDao = settingsDao;
+        this.addDropDao = addDropDao;
+        this.refreshNanos = refreshMillis * 1_000_000L;
+    }
+
+    //only one settings store exists, shared by every service
+    public static synchronized SettingsStore get() {
+        if (instance == null) {
+            instance = new SettingsStore(
+                new SettingsDao(DataSourceProvider.getERPDataSource()),
+                new AddDropDao(DataSourceProvider.getERPDataSource()),
+                REFRESH_MILLIS
+            );
+        }
+        return instance;
+    }
+
+    //current snapshot, loaded from the database only when missing or too old
+    public SettingsSnapshot current() throws SQLException {
+        SettingsSnapshot snap = current.get();
+        if (snap == null || System.nanoTime() - loadedAt > refreshNanos) {
+            snap = reload();
+        }
+        return snap;
+    }
+
+    //load the settings rows and the add/drop deadline into a new snapshot and swap it in
+    public synchronized SettingsSnapshot reload() throws SQLException {
+        SettingsSnapshot snap = current.get();
+        if (snap != null && System.nanoTime() - loadedAt <= refreshNanos) return snap;
+
+        snap = new SettingsSnapshot(settingsDao.loadAll(), addDropDao.getDeadline());
+        swap(snap);
+        return snap;
+    }
+
+    //save a new add/drop deadline and publish it right away
+    public synchronized void updateDeadline(LocalDate deadline) throws SQLException {
+        addDropDao.setDeadline(deadline);
+        swap(current().withDeadline(deadline));
+    }
+
+    //helper to publish a snapshot
+    private void swap(SettingsSnapshot snap) {
+        current.set(snap);
+        loadedAt = System.nanoTime();
+    }
+}
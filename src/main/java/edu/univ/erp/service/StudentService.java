@@ -4,21 +4,36 @@ import edu.univ.erp.access.AccessManager;
 import edu.univ.erp.data.*;
 import edu.univ.erp.domain.*;
 import edu.univ.erp.ui.UiContext;
+import edu.univ.erp.util.DataSourceProvider;
+import edu.univ.erp.util.WeekSlots;
 
 import javax.sql.DataSource;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 public class StudentService {
+    //how long a drop waits for a rush registration to be written, can be changed with -Derp.rush.awaitMillis
+    private static final long RUSH_WAIT_MILLIS = Long.getLong("erp.rush.awaitMillis", 5000);
+
     private final CourseDao courseDao;
     private final SectionDao sectionDao;
     private final EnrollmentDao enrollmentDao;
     private final AssessmentDao assessmentDao;
     private final ScoreDao scoreDao;
     private final FinalGradeDao finalGradeDao;
+    private final GradeSlabDao slabDao;
+    private final UserDao userDao;
     private final MaintenanceService maintenanceService;
+    private final SettingsStore settings;
+    private final RegistrationRush rush;
+    private final WaitlistDao waitlistDao;
+    private final ScheduleSolver scheduleSolver;
+    private final SeatAvailabilityCache availability;
     //constructor
     public StudentService(DataSource ds, AccessManager a) {
         this.courseDao = new CourseDao(ds);
@@ -27,7 +42,14 @@ public class StudentService {
         this.assessmentDao = new AssessmentDao(ds);
         this.scoreDao = new ScoreDao(ds);
         this.finalGradeDao = new FinalGradeDao(ds, assessmentDao, scoreDao, enrollmentDao);
-        this.maintenanceService = new MaintenanceService(ds);
+        this.slabDao = new GradeSlabDao(ds);
+        this.userDao = new UserDao(DataSourceProvider.getAuthDataSource(), ds);
+        this.maintenanceService = new MaintenanceService();
+        this.settings = SettingsStore.get();
+        this.rush = RegistrationRush.get();
+        this.waitlistDao = new WaitlistDao(ds);
+        this.scheduleSolver = new ScheduleSolver(sectionDao);
+        this.availability = SeatAvailabilityCache.get();
     }
 
     //course catalog
@@ -59,10 +81,42 @@ public class StudentService {
         return sectionDao.findSectionsForRegistration(courseId);
     }
 
+    //sections of a course with seats left, from the shared short lived availability feed
+    public List<SectionAvailability> getSectionAvailability(int courseId) throws SQLException {
+        return availability.forCourse(courseId);
+    }
+
+    //sections of a whole term with seats left
+    public List<SectionAvailability> getTermAvailability(String semester, int year) throws Exception {
+        if (semester == null || semester.isBlank() || year <= 0) {
+            throw new Exception("Semester and year are required.");
+        }
+        return availability.forTerm(semester, year);
+    }
+
+    //conflict free timetables for a list of courses in one term, best first, each one can be passed to registerCart
+    public List<ScheduleSolver.Timetable> buildSchedules(String studentId, List<Integer> courseIds, String semester, int year, int count) throws Exception {
+        if (courseIds == null || courseIds.isEmpty()) {
+            throw new Exception("Pick at least one course.");
+        }
+        if (semester == null || semester.isBlank() || year <= 0) {
+            throw new Exception("Semester and year are required.");
+        }
+
+        //access management
+        UiContext.get().access().requireStudentAccess(studentId);
+
+        List<ScheduleSolver.Timetable> timetables = scheduleSolver.solve(studentId, courseIds, semester, year, count);
+        if (timetables.isEmpty()) {
+            throw new Exception("No timetable with open seats fits these courses around your current sections, or you are already registered in all of them.");
+        }
+        return timetables;
+    }
+
     //register student
     public void register(String studentId, int sectionId) throws Exception {
         //throw error if after drop deadline or not enrolled in course
-        if (LocalDate.now().isAfter(UiContext.get().adddrop().getDeadline().getData())) {
+        if (isPastDeadline()) {
             throw new Exception("Registration deadline has passed.");
         }
 
@@ -72,17 +126,59 @@ public class StudentService {
         //access management
         UiContext.get().access().requireStudentAccess(studentId);
 
+        //the section must not overlap the student's timetable
+        requireNoClash(studentId, List.of(sectionId));
+
+        //register student, the seat check and the insert are one atomic step
         //throw error if already enrolled or section full
-        if (enrollmentDao.isAlreadyEnrolled(studentId, sectionId)) {
+        //in rush mode the seat is taken from memory and written behind
+        EnrollmentDao.SeatResult result = rush.reserve(studentId, sectionId);
+        if (result == EnrollmentDao.SeatResult.ALREADY_ENROLLED) {
             throw new Exception("You are already registered in this section.");
         }
+        //a full section puts the student on its waitlist instead of making them retry
+        //(ALREADY_ENROLLED never gets here, and join refuses a registered student anyway)
+        if (result == EnrollmentDao.SeatResult.FULL) {
+            int position = waitlistDao.join(studentId, sectionId);
+            if (position == 0) {
+                throw new Exception("You are already registered in this section.");
+            }
+            throw new Exception("Section is full. You are number " + position + " on the waitlist.");
+        }
+    }
 
-        if (!sectionDao.hasSeat(sectionId)) {
-            throw new Exception("Section is full.");
+    //register in several sections at once (registration cart), all or nothing
+    //deadline, maintenance and access are checked once, the seats in one transaction
+    public void registerCart(String studentId, List<Integer> sectionIds) throws Exception {
+        if (sectionIds == null || sectionIds.isEmpty()) {
+            throw new Exception("Cart is empty.");
+        }
+        if (isPastDeadline()) {
+            throw new Exception("Registration deadline has passed.");
         }
 
-        //register student
-        enrollmentDao.register(studentId, sectionId);
+        //maintenance should be off
+        maintenanceService.requireWriteAllowed();
+
+        //access management
+        UiContext.get().access().requireStudentAccess(studentId);
+
+        //the cart must not overlap the student's timetable or itself
+        requireNoClash(studentId, sectionIds);
+
+        //rush mode admits one seat at a time from memory and can't undo a queued seat
+        Map<Integer, EnrollmentDao.SeatResult> results = rush.reserveAll(studentId, sectionIds);
+        if (results == null) {
+            throw new Exception("Cart registration is unavailable during the registration rush. Register sections one at a time.");
+        }
+        List<String> problems = new ArrayList<>();
+        for (var e : results.entrySet()) {
+            if (e.getValue() == EnrollmentDao.SeatResult.ALREADY_ENROLLED) problems.add("already registered in section " + e.getKey());
+            if (e.getValue() == EnrollmentDao.SeatResult.FULL) problems.add("section " + e.getKey() + " is full");
+        }
+        if (!problems.isEmpty()) {
+            throw new Exception("Nothing was registered: " + String.join(", ", problems) + ".");
+        }
     }
 
     //drop course
@@ -94,19 +190,93 @@ public class StudentService {
         UiContext.get().access().requireStudentAccess(studentId);
 
         //throw error if after drop deadline or not enrolled in course
-        if (LocalDate.now().isAfter(UiContext.get().adddrop().getDeadline().getData())) {
+        if (isPastDeadline()) {
             throw new Exception("Drop deadline has passed.");
         }
 
+        //in rush mode this enrollment may still be queued, so wait for its own write (not the whole queue)
+        long rushEpoch = rush.epoch();
+        if (rush.isActive()) {
+            try {
+                rush.awaitWritten(studentId, sectionId, RUSH_WAIT_MILLIS);
+            } catch (TimeoutException e) {
+                throw new Exception("Your registration is still being saved. Please try again in a moment.");
+            }
+        }
+
         if (!enrollmentDao.isAlreadyEnrolled(studentId, sectionId)) {
             throw new Exception("You are not enrolled in this section.");
         }
 
-        //drop course
-        enrollmentDao.drop(studentId, sectionId);
+        //drop course, the seat goes to the next waitlisted student if there is one
+        //in rush mode the in-memory seat is moved or given back too
+        String promoted = enrollmentDao.drop(studentId, sectionId);
+        rush.dropped(studentId, sectionId, promoted, rushEpoch);
+    }
+
+    //position on a section's waitlist, 0 if not waitlisted
+    public int getWaitlistPosition(String studentId, int sectionId) throws Exception {
+        //access management
+        UiContext.get().access().requireStudentAccess(studentId);
+        return waitlistDao.position(studentId, sectionId);
+    }
+
+    //leave a section's waitlist
+    public void leaveWaitlist(String studentId, int sectionId) throws Exception {
+        maintenanceService.requireWriteAllowed();
+        UiContext.get().access().requireStudentAccess(studentId);
+        waitlistDao.leave(studentId, sectionId);
+    }
+
+    //timetable clash check, the student's registered sections of the same term are folded into one week bitset
+    //and every new section is a few ANDs against it; sections already registered are left to the seat check
+    //in rush mode, registrations still in the write-behind queue are not seen yet
+    private void requireNoClash(String studentId, List<Integer> sectionIds) throws Exception {
+        //only sections of the same term can clash, so the wanted sections are checked term by term
+        Map<String, List<SectionDao.SectionTime>> byTerm = new LinkedHashMap<>();
+        for (SectionDao.SectionTime t : sectionDao.getDayTimes(sectionIds).values()) {
+            String term = (t.semester() == null ? "" : t.semester().trim().toLowerCase()) + "|" + t.year();
+            byTerm.computeIfAbsent(term, k -> new ArrayList<>()).add(t);
+        }
+
+        for (List<SectionDao.SectionTime> wanted : byTerm.values()) {
+            SectionDao.SectionTime first = wanted.getFirst();
+            Map<Integer, String> mine = sectionDao.getDayTimesForStudent(studentId, first.semester(), first.year());
+
+            WeekSlots timetable = WeekSlots.EMPTY;
+            Map<Integer, WeekSlots> taken = new LinkedHashMap<>();
+            for (var e : mine.entrySet()) {
+                WeekSlots slots = WeekSlots.forSection(e.getKey(), e.getValue());
+                timetable = timetable.union(slots);
+                taken.put(e.getKey(), slots);
+            }
+
+            for (SectionDao.SectionTime t : wanted) {
+                if (mine.containsKey(t.sectionId())) continue;
+                WeekSlots slots = WeekSlots.forSection(t.sectionId(), t.dayTime());
+                if (timetable.intersects(slots)) {
+                    //only now look for which section it is
+                    for (var e : taken.entrySet()) {
+                        if (e.getValue().intersects(slots)) {
+                            throw new Exception("Section " + t.sectionId() + " clashes with section " + e.getKey() + " in your timetable.");
+                        }
+                    }
+                }
+                timetable = timetable.union(slots);
+                taken.put(t.sectionId(), slots);
+            }
+        }
+    }
+
+    //add/drop deadline check, read from the settings snapshot instead of the database
+    private boolean isPastDeadline() throws SQLException {
+        LocalDate deadline = settings.current().getAddDropDeadline();
+        return deadline != null && LocalDate.now().isAfter(deadline);
     }
 
     //component wise grades
+    //assessments, scores and slabs of every registered section come from a few set based queries
+    //and each GradeView is computed in memory
     public List<GradeView> getGradeBreakdown(String studentId) throws Exception {
         //access management
         UiContext.get().access().requireStudentAccess(studentId);
@@ -114,19 +284,21 @@ public class StudentService {
 
         //enrolled sections
         List<Section> sections = sectionDao.getSectionsForStudent(studentId);
+        if (sections.isEmpty()) return result;
 
-        //for each section, get component scores and final grade
-        for (Section s : sections) {
-            List<Assessment> assessments = assessmentDao.getBySection(s.getSectionId());
+        List<Integer> sectionIds = new ArrayList<>();
+        for (Section s : sections) sectionIds.add(s.getSectionId());
 
-            List<Score> scores = new ArrayList<>();
-            for (Assessment a : assessments) {
-                Score sc = scoreDao.getScore(a.getId(), studentId);
-                if (sc != null) scores.add(sc);
-            }
+        Map<Integer, List<Assessment>> assessments = assessmentDao.getBySections(sectionIds);
+        Map<Integer, GradeMatrix> matrices = scoreDao.loadStudentMatrices(studentId, assessments);
+        Map<Integer, CompiledSlabs> slabs = slabDao.getCompiledForSections(sectionIds);
+        Map<String, Student> student = userDao.findStudentsByUserIds(List.of(studentId));
 
-            FinalGrade finalGrade = finalGradeDao.computeForStudent(s.getSectionId(), studentId);
-            result.add(new GradeView(s, assessments, scores, finalGrade));
+        //for each section, get component scores and final grade from the loaded data
+        for (Section s : sections) {
+            GradeMatrix matrix = matrices.get(s.getSectionId());
+            FinalGrade finalGrade = finalGradeDao.toFinalGrades(s, student, matrix, slabs.get(s.getSectionId())).get(0);
+            result.add(new GradeView(s, assessments.get(s.getSectionId()), matrix.scoresFor(0), finalGrade));
         }
 
         return result;
@@ -374,7 +374,8 @@ public class StudentDashboard extends JFrame {
                 "Instructor",
                 "Time",
                 "Room",
-                "Capacity"
+                "Capacity",
+                "Seats Left"
         };
         JComboBox<String> sortBox = new JComboBox<>(sortOptions);
         availableSectionsTable.setAutoCreateRowSorter(true);
@@ -386,6 +387,7 @@ public class StudentDashboard extends JFrame {
                 case 2 -> 2;
                 case 3 -> 3;
                 case 4 -> 4;
+                case 5 -> 5;
                 default -> 0;
             };
 
@@ -408,7 +410,7 @@ public class StudentDashboard extends JFrame {
         int idx = courseDropdown.getSelectedIndex();
         if (idx < 0) return;
         Course c = catalogModel.get(idx);
-        ApiResult<List<Section>> r = api.getAvailableSections(c.getCourseId());
+        ApiResult<List<SectionAvailability>> r = api.availability(c.getCourseId());
         if (!r.isSuccess()) {
             JOptionPane.showMessageDialog(this, r.getMessage());
             return;
@@ -421,7 +423,7 @@ public class StudentDashboard extends JFrame {
         int row = availableSectionsTable.getSelectedRow();
         if (row < 0) return;
 
-        Section s = availableSectionsModel.get(row);
+        SectionAvailability s = availableSectionsModel.get(row);
 
         ApiResult<String> r = api.register(studentUser.getUserId(), s.getSectionId());
         JOptionPane.showMessageDialog(this, r.getMessage());
@@ -586,15 +588,15 @@ public class StudentDashboard extends JFrame {
     }
 
     private static class AvailableSectionsTableModel extends AbstractTableModel {
-        private final String[] cols = {"Section ID", "Instructor", "Time", "Room", "Capacity"};
-        private List<Section> data = new ArrayList<>();
+        private final String[] cols = {"Section ID", "Instructor", "Time", "Room", "Capacity", "Seats Left"};
+        private List<SectionAvailability> data = new ArrayList<>();
 
-        public void setData(List<Section> d) {
+        public void setData(List<SectionAvailability> d) {
             data = d;
             fireTableDataChanged();
         }
 
-        public Section get(int r) { return data.get(r); }
+        public SectionAvailability get(int r) { return data.get(r); }
 
         @Override public int getRowCount() { return data.size(); }
         @Override public int getColumnCount() { return cols.length; }
@@ -602,13 +604,14 @@ public class StudentDashboard extends JFrame {
 
         @Override
         public Object getValueAt(int r, int c) {
-            Section s = get(r);
+            Section s = get(r).getSection();
             return switch (c) {
                 case 0 -> s.getSectionId();
                 case 1 -> s.getInstructor().getFullname();
                 case 2 -> s.getDayTime();
                 case 3 -> s.getRoom();
                 case 4 -> s.getCapacity();
+                case 5 -> get(r).getSeatsLeft();
                 default -> null;
             };
         }
@@ -2,7 +2,6 @@ package edu.univ.erp.ui;
 
 import edu.univ.erp.access.AccessManager;
 import edu.univ.erp.api.adddrop.AddDropApi;
-import edu.univ.erp.data.AddDropDao;
 import edu.univ.erp.service.*;
 
 import javax.sql.DataSource;
@@ -21,6 +20,7 @@ public class UiContext {
     private final InstructorService instructorService;
     private final AdminService adminService;
     private final GradeSlabService gradeSlabService;
+    private final AddDropApi addDropApi;
 
     //access Manager
     private final AccessManager accessManager;
@@ -30,7 +30,7 @@ public class UiContext {
         this.erpDS = DataSourceProvider.getERPDataSource();
 
         //access manager
-        this.accessManager = new AccessManager(erpDS);
+        this.accessManager = new AccessManager();
 
         // Services
         this.authService = new AuthService(authDS);
@@ -39,6 +39,7 @@ public class UiContext {
         this.instructorService = new InstructorService(erpDS, accessManager);
         this.adminService = new AdminService(authDS, erpDS, accessManager);
         this.gradeSlabService = new GradeSlabService(erpDS);
+        this.addDropApi = new AddDropApi(new AddDropService());
     }
 
     //only one uicontext exists
@@ -57,7 +58,5 @@ public class UiContext {
     public AdminService admin() { return adminService; }
     public AccessManager access() { return accessManager; }
     public GradeSlabService slabs() { return gradeSlabService; }
-    public AddDropApi adddrop() {
-        return new AddDropApi(new AddDropService());
-    }
+    public AddDropApi adddrop() { return addDropApi; }
 }
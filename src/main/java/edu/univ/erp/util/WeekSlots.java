@@ -0,0 +1,215 @@
+package edu.univ.erp.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//a week as a fixed bitset of 1 minute slots (7 days x 1440 slots = 10080 bits in 158 longs)
+//two timetables clash when their bitsets share a bit, so checks are a fixed number of ANDs whatever the timetable
+//a range covers [start, end), so back to back periods like 10:00-10:50 and 10:50-11:40 don't clash
+public final class WeekSlots {
+    public static final int SLOTS_PER_DAY = 24 * 60;
+    private static final int WORDS = (7 * SLOTS_PER_DAY + 63) / 64;
+    public static final WeekSlots EMPTY = new WeekSlots(new long[WORDS]);
+
+    //"10:00-11:30", "10-11", "2pm - 3:30pm", "14:00 to 15:30"
+    private static final Pattern RANGE = Pattern.compile(
+        "(\\d{1,2})(?:[:.](\\d{2}))?\\s*(am|pm)?\\s*(?:-|to)\\s*(\\d{1,2})(?:[:.](\\d{2}))?\\s*(am|pm)?");
+    private static final Map<String, Integer> DAY_NAMES = new HashMap<>();
+    static {
+        String[][] names = {
+            {"mon", "monday"}, {"tue", "tues", "tuesday"}, {"wed", "weds", "wednesday"},
+            {"thu", "thur", "thurs", "thursday"}, {"fri", "friday"}, {"sat", "saturday"}, {"sun", "sunday"}
+        };
+        for (int d = 0; d < names.length; d++) for (String n : names[d]) DAY_NAMES.put(n, d);
+    }
+
+    //parsed slots by section ID, reused while the section's day/time text stays the same
+    private static final Map<Integer, Cached> SECTION_CACHE = new ConcurrentHashMap<>();
+
+    private final long[] bits;
+
+    private WeekSlots(long[] bits) {
+        this.bits = bits;
+    }
+
+    //slots of a section, parsed once and cached by section ID
+    public static WeekSlots forSection(int sectionId, String dayTime) {
+        Cached c = SECTION_CACHE.get(sectionId);
+        if (c != null && Objects.equals(c.dayTime, dayTime)) return c.slots;
+
+        WeekSlots slots = parse(dayTime);
+        SECTION_CACHE.put(sectionId, new Cached(dayTime, slots));
+        return slots;
+    }
+
+    //parses free form day/time text such as "Mon/Wed 10:00-11:30", "MWF 9-10" or "Tue 2pm-3pm, Thu 14:00-15:00"
+    //days written before a time range apply to it; a range with no days of its own reuses the previous days
+    //(or, for the first range, the days written after it)
+    //text that can't be understood gives an empty week (it never clashes with anything)
+    public static WeekSlots parse(String dayTime) {
+        if (dayTime == null || dayTime.isBlank()) return EMPTY;
+        long[] bits = new long[WORDS];
+
+        String text = dayTime.toLowerCase().replace('–', '-').replace('—', '-');
+        Matcher m = RANGE.matcher(text);
+        List<int[]> ranges = new ArrayList<>(); //match start, match end, start minute, end minute
+        while (m.find()) {
+            int end = minutes(m.group(4), m.group(5), m.group(6));
+            int start = minutes(m.group(1), m.group(2), m.group(3) != null ? m.group(3) : m.group(6));
+            //"10-12pm" means 10am, not 10pm
+            if (m.group(3) == null && m.group(6) != null && start >= end) start = minutes(m.group(1), m.group(2), "am");
+            ranges.add(new int[]{m.start(), m.end(), start, end});
+        }
+
+        boolean[] days = new boolean[7];
+        boolean any = false;
+        for (int r = 0; r < ranges.size(); r++) {
+            int[] range = ranges.get(r);
+            boolean[] found = parseDays(text.substring(r == 0 ? 0 : ranges.get(r - 1)[1], range[0]));
+            if (hasAny(found)) days = found;
+            //"10:00-11:00 Mon/Wed": no days before the first range, so use the ones after it
+            if (!hasAny(days)) days = parseDays(text.substring(range[1], r + 1 < ranges.size() ? ranges.get(r + 1)[0] : text.length()));
+
+            int start = range[2], end = range[3];
+            if (start < 0 || end <= start) continue;
+
+            int stop = Math.min(SLOTS_PER_DAY, end);
+            for (int d = 0; d < 7; d++) {
+                if (!days[d]) continue;
+                setRange(bits, d * SLOTS_PER_DAY + start, d * SLOTS_PER_DAY + stop);
+                any = true;
+            }
+        }
+        return any ? new WeekSlots(bits) : EMPTY;
+    }
+
+    //true if both weeks use at least one common slot
+    public boolean intersects(WeekSlots other) {
+        for (int i = 0; i < WORDS; i++) {
+            if ((bits[i] & other.bits[i]) != 0) return true;
+        }
+        return false;
+    }
+
+    //a new week using the slots of both
+    public WeekSlots union(WeekSlots other) {
+        long[] out = new long[WORDS];
+        for (int i = 0; i < WORDS; i++) out[i] = bits[i] | other.bits[i];
+        return new WeekSlots(out);
+    }
+
+    public boolean isEmpty() {
+        for (long w : bits) if (w != 0) return false;
+        return true;
+    }
+
+    //number of days with at least one used slot
+    public int daysUsed() {
+        int count = 0;
+        for (int d = 0; d < 7; d++) {
+            if (anyInRange(bits, d * SLOTS_PER_DAY, (d + 1) * SLOTS_PER_DAY)) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof WeekSlots w && Arrays.equals(bits, w.bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bits);
+    }
+
+    //helper: sets bits [from, to), a whole word at a time
+    private static void setRange(long[] bits, int from, int to) {
+        for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) bits[w] |= mask(w, from, to);
+    }
+
+    //helper: true if any bit in [from, to) is set
+    private static boolean anyInRange(long[] bits, int from, int to) {
+        for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+            if ((bits[w] & mask(w, from, to)) != 0) return true;
+        }
+        return false;
+    }
+
+    //helper: the bits of word w that fall inside [from, to)
+    private static long mask(int w, int from, int to) {
+        int lo = Math.max(from, w << 6) - (w << 6);
+        int hi = Math.min(to, (w + 1) << 6) - (w << 6); //1..64
+        long upTo = hi == 64 ? -1L : (1L << hi) - 1;
+        return upTo & (-1L << lo);
+    }
+
+    //helper: minutes after midnight, or -1
+    //without am/pm, bare hours 1-7 are read as afternoon classes ("Mon 2-3" is 14:00-15:00), 8-12 as written
+    private static int minutes(String h, String m, String suffix) {
+        int hour = Integer.parseInt(h);
+        int minute = m == null ? 0 : Integer.parseInt(m);
+        if (hour > 23 || minute > 59) return -1;
+
+        if (suffix != null) {
+            if (hour > 12) return -1;
+            if (suffix.equals("pm") && hour != 12) hour += 12;
+            if (suffix.equals("am") && hour == 12) hour = 0;
+        } else if (hour >= 1 && hour <= 7) {
+            hour += 12;
+        }
+        return hour * 60 + minute;
+    }
+
+    //helper: which days a piece of text names, e.g. "mon/wed", "mwf", "tth", "tue & thu"
+    private static boolean[] parseDays(String text) {
+        boolean[] days = new boolean[7];
+        for (String token : text.split("[^a-z]+")) {
+            if (token.isEmpty()) continue;
+            Integer d = DAY_NAMES.get(token);
+            if (d != null) {
+                days[d] = true;
+                continue;
+            }
+            boolean[] compact = parseCompact(token);
+            if (compact != null) {
+                for (int i = 0; i < 7; i++) days[i] |= compact[i];
+            }
+        }
+        return days;
+    }
+
+    //helper: letter codes like "mwf", "tth", "tuth", "mtwrf", null if the token isn't one
+    private static boolean[] parseCompact(String token) {
+        boolean[] days = new boolean[7];
+        int i = 0;
+        while (i < token.length()) {
+            if (token.startsWith("th", i)) { days[3] = true; i += 2; }
+            else if (token.startsWith("tu", i)) { days[1] = true; i += 2; }
+            else if (token.startsWith("sa", i)) { days[5] = true; i += 2; }
+            else if (token.startsWith("su", i)) { days[6] = true; i += 2; }
+            else {
+                switch (token.charAt(i)) {
+                    case 'm': days[0] = true; break;
+                    case 't': days[1] = true; break;
+                    case 'w': days[2] = true; break;
+                    case 'r': days[3] = true; break;
+                    case 'f': days[4] = true; break;
+                    case 's': days[5] = true; break;
+                    default: return null;
+                }
+                i++;
+            }
+        }
+        return days;
+    }
+
+    private static boolean hasAny(boolean[] days) {
+        for (boolean d : days) if (d) return true;
+        return false;
+    }
+
+    //one parsed section and the text it came from
+    private record Cached(String dayTime, WeekSlots slots) {}
+}
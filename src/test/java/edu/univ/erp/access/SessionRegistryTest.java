@@ -0,0 +1,66 @@
+package edu.univ.erp.access;
+
+import edu.univ.erp.domain.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRegistryTest {
+    private static final long MINUTE = 60_000L;
+
+    // 30 idle minutes, on a clock the test moves by hand
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final SessionRegistry registry = new SessionRegistry(30, now::get);
+
+    private static User user(String id) {
+        return new User("Test User", id, id, "Student", null, "active", 0, null, null);
+    }
+
+    @Test
+    void aSessionResolvesUntilItIsIdleTooLong() {
+        Session s = registry.open(user("u1"));
+
+        now.addAndGet(30 * MINUTE);
+        assertSame(s, registry.resolve(s.getToken()));
+
+        now.addAndGet(30 * MINUTE + 1);
+        assertNull(registry.resolve(s.getToken()));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void usingASessionKeepsItAlive() {
+        Session s = registry.open(user("u1"));
+
+        for (int i = 0; i < 5; i++) {
+            now.addAndGet(20 * MINUTE);
+            assertSame(s, registry.resolve(s.getToken()));
+        }
+        assertEquals(now.get(), s.getLastSeen());
+    }
+
+    @Test
+    void unknownAndClosedTokensDontResolve() {
+        Session s = registry.open(user("u1"));
+        Session other = registry.open(user("u2"));
+        assertNotEquals(s.getToken(), other.getToken());
+
+        registry.close(s.getToken());
+        assertNull(registry.resolve(s.getToken()));
+        assertNull(registry.resolve("no-such-token"));
+        assertNull(registry.resolve(null));
+        assertSame(other, registry.resolve(other.getToken()));
+    }
+
+    @Test
+    void abandonedSessionsAreSweptAway() {
+        for (int i = 0; i < 100; i++) registry.open(user("old" + i));
+        now.addAndGet(31 * MINUTE);
+
+        // the sweep runs every 256 opens
+        for (int i = 0; i < 156; i++) registry.open(user("new" + i));
+        assertEquals(156, registry.size());
+    }
+}
@@ -0,0 +1,45 @@
+package edu.univ.erp.auth;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashingPolicyTest {
+    private static final String SALT = "abcdefghijklmnopqrstuv";
+
+    private static String hashAt(int cost) {
+        return String.format("$2a$%02d$", cost) + SALT + "0123456789012345678901234567890";
+    }
+
+    @Test
+    void costIsReadFromTheStoredHash() {
+        assertEquals(10, HashingPolicy.costOf(hashAt(10)));
+        assertEquals(12, HashingPolicy.costOf(hashAt(12)));
+        assertEquals(4, HashingPolicy.costOf("$2y$04$" + SALT));
+        assertEquals(-1, HashingPolicy.costOf(null));
+        assertEquals(-1, HashingPolicy.costOf(""));
+        assertEquals(-1, HashingPolicy.costOf("plain-text"));
+        assertEquals(-1, HashingPolicy.costOf("$2a$xx$" + SALT));
+    }
+
+    @Test
+    void onlyWeakerHashesAreRehashed() {
+        HashingPolicy policy = new HashingPolicy(12, -1);
+
+        assertTrue(policy.needsRehash(hashAt(10)));
+        assertFalse(policy.needsRehash(hashAt(12)));
+        assertFalse(policy.needsRehash(hashAt(14)));
+    }
+
+    @Test
+    void calibrationStaysInsideTheRange() {
+        // low costs keep the test fast, a budget of zero can't be met so the lowest cost is kept
+        HashingPolicy tight = HashingPolicy.calibrate(0, 4, 6);
+        assertEquals(4, tight.getCost());
+        assertTrue(tight.getMeasuredMillis() >= 0);
+
+        // a huge budget stops at the highest cost
+        HashingPolicy loose = HashingPolicy.calibrate(60_000, 4, 6);
+        assertEquals(6, loose.getCost());
+    }
+}
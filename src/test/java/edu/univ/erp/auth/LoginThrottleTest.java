@@ -0,0 +1,86 @@
+package edu.univ.erp.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginThrottleTest {
+    private static final long MINUTE = 60_000L;
+
+    // 5 failures in 15 minutes lock for 5 minutes, on a clock the test moves by hand
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final LoginThrottle throttle = new LoginThrottle(5, 5, 15, now::get);
+
+    private long fail(String username, int times) {
+        long lock = 0;
+        for (int i = 0; i < times; i++) lock = throttle.recordFailure(username);
+        return lock;
+    }
+
+    @Test
+    void theFifthFailureInsideTheWindowLocks() {
+        assertEquals(0, fail("alice", 4));
+        assertEquals(0, throttle.lockedUntil("alice"));
+
+        long lock = throttle.recordFailure("alice");
+        assertEquals(now.get() + 5 * MINUTE, lock);
+        assertEquals(lock, throttle.lockedUntil("alice"));
+    }
+
+    @Test
+    void failuresOlderThanTheWindowDontCount() {
+        fail("alice", 4);
+        now.addAndGet(15 * MINUTE);
+
+        assertEquals(0, throttle.recordFailure("alice"));
+        assertEquals(0, fail("alice", 3));
+        assertTrue(throttle.recordFailure("alice") > 0);
+    }
+
+    @Test
+    void theWindowSlidesOneFailureAtATime() {
+        throttle.recordFailure("alice");          // t = 0
+        now.addAndGet(10 * MINUTE);
+        fail("alice", 3);                         // t = 10
+        now.addAndGet(6 * MINUTE);
+
+        // the failure at t = 0 has left the window, only 4 remain
+        assertEquals(0, throttle.recordFailure("alice"));
+        assertTrue(throttle.recordFailure("alice") > 0);
+    }
+
+    @Test
+    void theLockEndsAfterLockMinutesAndTheCountRestarts() {
+        fail("alice", 5);
+        now.addAndGet(5 * MINUTE - 1);
+        assertTrue(throttle.lockedUntil("alice") > 0);
+
+        now.addAndGet(1);
+        assertEquals(0, throttle.lockedUntil("alice"));
+        assertEquals(0, fail("alice", 4));
+    }
+
+    @Test
+    void successForgetsTheFailures() {
+        fail("alice", 4);
+        throttle.recordSuccess("alice");
+        assertEquals(0, fail("alice", 4));
+    }
+
+    @Test
+    void usernamesIgnoreCaseAndSpaces() {
+        fail("Alice", 2);
+        fail(" alice ", 2);
+        assertTrue(throttle.recordFailure("ALICE") > 0);
+    }
+
+    @Test
+    void usernamesAreCountedSeparately() {
+        fail("alice", 4);
+        fail("bob", 4);
+        assertEquals(0, throttle.lockedUntil("alice"));
+        assertEquals(0, throttle.lockedUntil("bob"));
+    }
+}
@@ -0,0 +1,46 @@
+package edu.univ.erp.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    @Test
+    void aFullQueueIsRefusedRightAway() throws Exception {
+        // one thread and one queue slot: the first call holds the thread, the second waits, the third is refused
+        PasswordHasher hasher = new PasswordHasher(1, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = callers.submit(() -> hasher.run(() -> {
+                running.countDown();
+                release.await();
+                return 1;
+            }));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            Future<Integer> second = callers.submit(() -> hasher.run(() -> 2));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (hasher.getQueueDepth() < 1 && System.nanoTime() < deadline) Thread.sleep(1);
+            assertEquals(1, hasher.getActive());
+            assertEquals(1, hasher.getQueueDepth());
+
+            long started = System.nanoTime();
+            assertThrows(PasswordHasher.BusyException.class, () -> hasher.run(() -> 3));
+            assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1));
+            assertEquals(1, hasher.getRejected());
+
+            release.countDown();
+            assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            assertEquals(2, second.get(5, TimeUnit.SECONDS));
+            assertEquals(2, hasher.getCompleted());
+            assertEquals(1, hasher.getRejected());
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package edu.univ.erp.data;
+
+import edu.univ.erp.domain.GradeSlab;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledSlabsTest {
+    // A 90-100, B 80-90, C 70-80, given out of order on purpose
+    private final CompiledSlabs slabs = new CompiledSlabs(List.of(
+        new GradeSlab(2, 1, "B", 80, 90),
+        new GradeSlab(1, 1, "A", 90, 100),
+        new GradeSlab(3, 1, "C", 70, 80)
+    ));
+
+    @Test
+    void slabsAreHighestFirst() {
+        var letters = slabs.getSlabs().stream().map(GradeSlab::getLetter).toList();
+        assertEquals(List.of("A", "B", "C"), letters);
+    }
+
+    @Test
+    void letterForInsideASlab() {
+        assertEquals("A", slabs.letterFor(95));
+        assertEquals("B", slabs.letterFor(85.5));
+        assertEquals("C", slabs.letterFor(70));
+    }
+
+    @Test
+    void sharedBoundaryGoesToTheHigherSlab() {
+        assertEquals("A", slabs.letterFor(90));
+        assertEquals("B", slabs.letterFor(80));
+    }
+
+    @Test
+    void letterForOutsideEverySlabIsNull() {
+        assertNull(slabs.letterFor(69.9));
+        assertNull(slabs.letterFor(100.1));
+        assertNull(new CompiledSlabs(List.of()).letterFor(50));
+    }
+
+    @Test
+    void touchingRangesDontOverlap() {
+        assertFalse(slabs.overlaps(60, 70, -1));
+        assertFalse(slabs.overlaps(100, 110, -1));
+    }
+
+    @Test
+    void crossingRangesOverlap() {
+        assertTrue(slabs.overlaps(65, 71, -1));
+        assertTrue(slabs.overlaps(85, 86, -1));
+        assertTrue(slabs.overlaps(99, 105, -1));
+    }
+
+    @Test
+    void excludedSlabDoesntOverlapItself() {
+        assertFalse(slabs.overlaps(81, 89, 2));
+        assertTrue(slabs.overlaps(75, 89, 2));
+    }
+
+    @Test
+    void hasLetterSkipsTheExcludedSlab() {
+        assertTrue(slabs.hasLetter("B", -1));
+        assertFalse(slabs.hasLetter("B", 2));
+        assertFalse(slabs.hasLetter("D", -1));
+    }
+}
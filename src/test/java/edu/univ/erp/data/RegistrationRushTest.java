@@ -0,0 +1,228 @@
+package edu.univ.erp.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistrationRushTest {
+    // rows the fake writer "persisted", in order
+    private final List<RegistrationRush.Pending> rows = new CopyOnWriteArrayList<>();
+    private RegistrationRush rush;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (rush != null) rush.finish();
+    }
+
+    // runs before the fake writer "writes" a batch, may throw to fail it
+    private interface Check {
+        void run(List<RegistrationRush.Pending> batch) throws SQLException;
+    }
+
+    // a rush with no database, the writer runs the given check before "writing" a batch
+    private RegistrationRush rush(Check check) {
+        rush = new RegistrationRush(null, null, batch -> {
+            check.run(batch);
+            rows.addAll(batch);
+            return List.of();
+        }, 1);
+        return rush;
+    }
+
+    private RegistrationRush rush() {
+        return rush(batch -> {});
+    }
+
+    @Test
+    void admitsUntilTheSectionIsFull() throws Exception {
+        rush().begin(Map.of(1, 2), Set.of());
+
+        assertEquals(EnrollmentDao.SeatResult.RESERVED, rush.reserve("s1", 1));
+        assertEquals(EnrollmentDao.SeatResult.RESERVED, rush.reserve("s2", 1));
+        assertEquals(EnrollmentDao.SeatResult.FULL, rush.reserve("s3", 1));
+        assertEquals(EnrollmentDao.SeatResult.FULL, rush.reserve("s3", 99));
+        assertEquals(2, rush.getAdmitted());
+        assertEquals(2, rush.getRejected());
+    }
+
+    @Test
+    void rejectsADuplicateRegistration() throws Exception {
+        rush().begin(Map.of(1, 5), Set.of(RegistrationRush.key("s1", 1)));
+
+        assertEquals(EnrollmentDao.SeatResult.ALREADY_ENROLLED, rush.reserve("s1", 1));
+        assertEquals(EnrollmentDao.SeatResult.RESERVED, rush.reserve("s2", 1));
+        assertEquals(EnrollmentDao.SeatResult.ALREADY_ENROLLED, rush.reserve("s2", 1));
+    }
+
+    @Test
+    void finishWritesEverythingInArrivalOrder() throws Exception {
+        rush().begin(Map.of(1, 500), Set.of());
+        for (int i = 0; i < 450; i++) rush.reserve("s" + i, 1);
+
+        assertTrue(rush.finish());
+        assertEquals(450, rows.size());
+        for (int i = 0; i < 450; i++) assertEquals("s" + i, rows.get(i).studentId());
+        assertEquals(450, rush.getWritten());
+        assertEquals(0, rush.getQueueDepth());
+        assertFalse(rush.isActive());
+    }
+
+    @Test
+    void awaitWrittenWaitsOnlyForItsOwnRow() throws Exception {
+        var gate = new CountDownLatch(1);
+        rush(batch -> {
+            try {
+                if (batch.getFirst().studentId().equals("slow")) gate.await();
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+        }).begin(Map.of(1, 5), Set.of());
+
+        rush.reserve("slow", 1);
+        assertThrows(TimeoutException.class, () -> rush.awaitWritten("slow", 1, 50));
+
+        gate.countDown();
+        assertTrue(rush.awaitWritten("slow", 1, 5000));
+        // settled already: still answered from the registered set
+        assertTrue(rush.awaitWritten("slow", 1, 50));
+        // never admitted: nothing to wait for, and not written
+        assertFalse(rush.awaitWritten("other", 1, 50));
+    }
+
+    @Test
+    void retriesAFailedBatch() throws Exception {
+        var calls = new AtomicInteger();
+        rush(batch -> {
+            if (calls.incrementAndGet() < 3) throw new SQLException("deadlock");
+        }).begin(Map.of(1, 1), Set.of());
+
+        rush.reserve("s1", 1);
+        assertTrue(rush.awaitWritten("s1", 1, 5000));
+        assertEquals(1, rows.size());
+        assertEquals(0, rush.getFailedWrites());
+    }
+
+    @Test
+    void aRowThatCantBeWrittenIsTakenBack() throws Exception {
+        var gate = new CountDownLatch(1);
+        rush(batch -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+            for (var p : batch) if (p.studentId().equals("bad")) throw new SQLException("constraint");
+        }).begin(Map.of(1, 2), Set.of());
+
+        // both land in one batch, only "bad" fails on its own
+        rush.reserve("good", 1);
+        rush.reserve("bad", 1);
+        assertEquals(EnrollmentDao.SeatResult.FULL, rush.reserve("late", 1));
+        gate.countDown();
+
+        assertTrue(rush.awaitWritten("good", 1, 5000));
+        assertFalse(rush.awaitWritten("bad", 1, 5000));
+        // asked again after the writer has settled both rows
+        assertTrue(rush.awaitWritten("good", 1, 50));
+        assertFalse(rush.awaitWritten("bad", 1, 50));
+        assertEquals(List.of("good"), rows.stream().map(RegistrationRush.Pending::studentId).toList());
+        assertEquals(1, rush.getFailedWrites());
+        assertEquals(List.of("bad in section 1: constraint"), rush.getRecentFailures());
+
+        // the seat and the registration key were given back
+        assertEquals(EnrollmentDao.SeatResult.RESERVED, rush.reserve("bad", 1));
+    }
+
+    @Test
+    void aRowTheDatabaseHasNoSeatForIsTakenBack() throws Exception {
+        // another app instance filled section 1 in the database
+        rush = new RegistrationRush(null, null, batch -> {
+            var full = batch.stream().filter(p -> p.sectionId() == 1).toList();
+            for (var p : batch) if (p.sectionId() != 1) rows.add(p);
+            return full;
+        }, 1);
+        rush.begin(Map.of(1, 1, 2, 1), Set.of());
+
+        rush.reserve("s1", 1);
+        rush.reserve("s2", 2);
+        assertFalse(rush.awaitWritten("s1", 1, 5000));
+        assertTrue(rush.awaitWritten("s2", 2, 5000));
+        assertEquals(List.of("s1 in section 1: section is full in the database"), rush.getRecentFailures());
+
+        // the seat went to the other instance, so it is not handed out again here
+        assertEquals(EnrollmentDao.SeatResult.FULL, rush.reserve("s3", 1));
+        // the student can still try another section
+        assertEquals(EnrollmentDao.SeatResult.FULL, rush.reserve("s1", 2));
+    }
+
+    @Test
+    void dropGivesTheSeatBackOnlyInTheSameRush() throws Exception {
+        rush().begin(Map.of(1, 0), Set.of(RegistrationRush.key("s1", 1), RegistrationRush.key("s2", 1)));
+        long epoch = rush.epoch();
+
+        // dropped before this rush loaded its seats, so the drop is already counted
+        rush.dropped("s1", 1, null, epoch - 1);
+        assertEquals(EnrollmentDao.SeatResult.FULL, rush.reserve("s3", 1));
+
+        rush.dropped("s2", 1, null, epoch);
+        assertEquals(EnrollmentDao.SeatResult.RESERVED, rush.reserve("s3", 1));
+    }
+
+    @Test
+    void dropMovesTheSeatToThePromotedStudent() throws Exception {
+        rush().begin(Map.of(1, 0), Set.of(RegistrationRush.key("s1", 1)));
+
+        rush.dropped("s1", 1, "w1", rush.epoch());
+        assertEquals(EnrollmentDao.SeatResult.ALREADY_ENROLLED, rush.reserve("w1", 1));
+        assertEquals(EnrollmentDao.SeatResult.FULL, rush.reserve("s1", 1));
+    }
+
+    @Test
+    void aNewRushStartsFromAnEmptyQueue() throws Exception {
+        rush().begin(Map.of(1, 3), Set.of());
+        rush.reserve("s1", 1);
+        rush.finish();
+        assertFalse(rush.finish());
+
+        rush.begin(Map.of(1, 3), Set.of(RegistrationRush.key("s1", 1)));
+        assertEquals(0, rush.getQueueDepth());
+        assertEquals(EnrollmentDao.SeatResult.ALREADY_ENROLLED, rush.reserve("s1", 1));
+        assertTrue(rush.finish());
+        assertEquals(1, rows.size());
+    }
+
+    @Test
+    void reservationsRacingTheEndAreAllWritten() throws Exception {
+        rush().begin(Map.of(1, 100_000), Set.of());
+        var threads = new ArrayList<Thread>();
+        var reserved = new AtomicInteger();
+        for (int t = 0; t < 4; t++) {
+            int id = t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    try {
+                        var r = rush.reserve("t" + id + "-" + i, 1);
+                        if (r == EnrollmentDao.SeatResult.RESERVED) reserved.incrementAndGet();
+                    } catch (SQLException | RuntimeException e) {
+                        return; // the rush ended, the fallback has no database here
+                    }
+                }
+            }));
+        }
+        TimeUnit.MILLISECONDS.sleep(5);
+        rush.finish();
+        for (Thread t : threads) t.join();
+
+        assertEquals(reserved.get(), rows.size());
+        assertEquals(0, rush.getQueueDepth());
+    }
+}
@@ -0,0 +1,85 @@
+package edu.univ.erp.service;
+
+import edu.univ.erp.data.SectionDao.SeatRow;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleSolverTest {
+    // the student's registered sections and the open sections of the term, no database
+    private final List<SeatRow> registered = new ArrayList<>();
+    private final List<SeatRow> offered = new ArrayList<>();
+
+    private final ScheduleSolver solver = new ScheduleSolver(new ScheduleSolver.SeatSource() {
+        public List<SeatRow> forStudent(String studentId, String semester, int year) {
+            return registered;
+        }
+
+        public List<SeatRow> forCourses(Collection<Integer> courseIds, String semester, int year) {
+            return offered.stream().filter(r -> courseIds.contains(r.courseId())).toList();
+        }
+    });
+
+    // section IDs are kept unique across tests because WeekSlots caches parsed times by section ID
+    private static SeatRow section(int sectionId, int courseId, String dayTime, int free) {
+        return new SeatRow(sectionId, courseId, dayTime, 30, 30 - free);
+    }
+
+    private List<List<Integer>> solve(Integer... courseIds) throws Exception {
+        return solver.solve("s1", List.of(courseIds), "Fall", 2025, 5).stream()
+            .map(ScheduleSolver.Timetable::getSectionIds).toList();
+    }
+
+    @Test
+    void onlyClashFreeTimetablesAreReturned() throws Exception {
+        offered.add(section(101, 1, "Mon 09:00-10:00", 10));
+        offered.add(section(102, 1, "Tue 09:00-10:00", 10));
+        offered.add(section(103, 2, "Mon 09:30-10:30", 10));
+
+        List<ScheduleSolver.Timetable> result = solver.solve("s1", List.of(1, 2), "Fall", 2025, 5);
+
+        assertEquals(1, result.size());
+        assertEquals(List.of(102, 103), result.get(0).getSectionIds());
+        assertEquals(2, result.get(0).getDaysOnCampus());
+    }
+
+    @Test
+    void fewestDaysComeFirst() throws Exception {
+        offered.add(section(111, 1, "Mon 09:00-10:00", 10));
+        offered.add(section(112, 1, "Wed 09:00-10:00", 20));
+        offered.add(section(113, 2, "Mon 11:00-12:00", 10));
+
+        assertEquals(List.of(List.of(111, 113), List.of(112, 113)), solve(1, 2));
+    }
+
+    @Test
+    void noSolutionWhenEverySetClashes() throws Exception {
+        offered.add(section(121, 1, "Mon 09:00-10:00", 10));
+        offered.add(section(122, 2, "Mon 09:30-10:30", 10));
+
+        assertEquals(List.of(), solve(1, 2));
+    }
+
+    @Test
+    void noSolutionWhenACourseHasNoFreeSeat() throws Exception {
+        offered.add(section(131, 1, "Mon 09:00-10:00", 10));
+        offered.add(section(132, 2, "Tue 09:00-10:00", 0));
+
+        assertEquals(List.of(), solve(1, 2));
+        assertEquals(List.of(), solve(1, 3));
+    }
+
+    @Test
+    void anAlreadyRegisteredCourseIsSkippedAndItsTimeIsBusy() throws Exception {
+        registered.add(section(141, 3, "Wed 09:00-10:00", 5));
+        offered.add(section(141, 3, "Wed 09:00-10:00", 5));
+        offered.add(section(142, 3, "Thu 09:00-10:00", 5));
+        offered.add(section(143, 1, "Wed 09:30-10:30", 10));
+        offered.add(section(144, 1, "Fri 09:00-10:00", 10));
+
+        assertEquals(List.of(List.of(144)), solve(1, 3));
+        assertEquals(List.of(), solve(3));
+    }
+}
@@ -0,0 +1,101 @@
+package edu.univ.erp.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeekSlotsTest {
+    private static boolean clash(String a, String b) {
+        return WeekSlots.parse(a).intersects(WeekSlots.parse(b));
+    }
+
+    @Test
+    void overlappingRangesClash() {
+        assertTrue(clash("Mon 10:00-11:30", "Mon 11:00-12:00"));
+        assertTrue(clash("Mon/Wed 10:00-11:30", "Wed 10:15-10:20"));
+    }
+
+    @Test
+    void backToBackPeriodsDontClash() {
+        assertFalse(clash("Mon 10:00-10:50", "Mon 10:50-11:40"));
+        assertFalse(clash("Mon 10:00-10:50", "Mon 10:55-11:45"));
+        assertFalse(clash("Tue 9-10", "Tue 10-11"));
+    }
+
+    @Test
+    void oneMinuteOfOverlapClashes() {
+        assertTrue(clash("Mon 10:00-10:51", "Mon 10:50-11:40"));
+    }
+
+    @Test
+    void differentDaysDontClash() {
+        assertFalse(clash("Mon 10:00-11:00", "Tue 10:00-11:00"));
+        assertFalse(clash("MWF 9-10", "TTh 9-10"));
+    }
+
+    @Test
+    void daysAfterTheFirstRangeApplyToIt() {
+        assertEquals(WeekSlots.parse("Mon/Wed 10:00-11:00"), WeekSlots.parse("10:00-11:00 Mon/Wed"));
+    }
+
+    @Test
+    void rangeWithoutDaysReusesThePreviousOnes() {
+        assertEquals(WeekSlots.parse("Tue 9:00-10:00, Tue 14:00-15:00"), WeekSlots.parse("Tue 9:00-10:00, 14:00-15:00"));
+    }
+
+    @Test
+    void compactDayCodes() {
+        assertEquals(WeekSlots.parse("Mon, Wed, Fri 9-10"), WeekSlots.parse("MWF 9-10"));
+        assertEquals(WeekSlots.parse("Tue, Thu 9-10"), WeekSlots.parse("TTh 9-10"));
+        assertEquals(WeekSlots.parse("Tue, Thu 9-10"), WeekSlots.parse("TR 9-10"));
+    }
+
+    @Test
+    void bareHoursOneToSevenArePm() {
+        assertEquals(WeekSlots.parse("Mon 14:00-15:00"), WeekSlots.parse("Mon 2-3"));
+        assertEquals(WeekSlots.parse("Mon 2pm-3pm"), WeekSlots.parse("Mon 2-3"));
+        assertEquals(WeekSlots.parse("Mon 19:00-20:00"), WeekSlots.parse("Mon 7-8pm"));
+        assertFalse(clash("Mon 2-3", "Mon 2am-3am"));
+    }
+
+    @Test
+    void bareHoursEightToTwelveAreAsWritten() {
+        assertEquals(WeekSlots.parse("Mon 08:00-09:00"), WeekSlots.parse("Mon 8-9"));
+        assertEquals(WeekSlots.parse("Mon 11:00-13:00"), WeekSlots.parse("Mon 11-1"));
+    }
+
+    @Test
+    void suffixOnTheEndOnlyMovesTheStartWhenItMustBeEarlier() {
+        assertEquals(WeekSlots.parse("Mon 10am-12pm"), WeekSlots.parse("Mon 10-12pm"));
+        assertEquals(WeekSlots.parse("Mon 2pm-3pm"), WeekSlots.parse("Mon 2-3pm"));
+    }
+
+    @Test
+    void unreadableTextIsEmpty() {
+        assertTrue(WeekSlots.parse(null).isEmpty());
+        assertTrue(WeekSlots.parse("TBA").isEmpty());
+        assertTrue(WeekSlots.parse("Mon 25:00-26:00").isEmpty());
+        assertFalse(clash("TBA", "Mon 10-11"));
+    }
+
+    @Test
+    void daysUsedCountsEachDayOnce() {
+        assertEquals(3, WeekSlots.parse("MWF 9-10, MWF 11-12").daysUsed());
+        assertEquals(1, WeekSlots.parse("Sun 23:00-23:59").daysUsed());
+        assertEquals(1, WeekSlots.parse("Mon 0:00-0:01").daysUsed());
+        assertEquals(0, WeekSlots.EMPTY.daysUsed());
+    }
+
+    @Test
+    void unionKeepsBothWeeks() {
+        WeekSlots both = WeekSlots.parse("Mon 9-10").union(WeekSlots.parse("Tue 9-10"));
+        assertTrue(both.intersects(WeekSlots.parse("Tue 9:30-9:45")));
+        assertEquals(2, both.daysUsed());
+    }
+
+    @Test
+    void forSectionReparsesWhenTheTextChanges() {
+        assertEquals(WeekSlots.parse("Mon 9-10"), WeekSlots.forSection(-1, "Mon 9-10"));
+        assertEquals(WeekSlots.parse("Tue 9-10"), WeekSlots.forSection(-1, "Tue 9-10"));
+    }
+}